@@ -0,0 +1,166 @@
+package com.github.vlsergey.springdata.entitysecurity;
+
+import java.util.function.Supplier;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import lombok.NonNull;
+
+/**
+ * Emits JFR events of the security layer. Event fields are set only if event
+ * is enabled and passes threshold, thus disabled events cost nothing but
+ * allocation eliminated by JIT.
+ */
+final class JfrSecurityEvents implements SecurityEvents {
+
+	private static final String NAME_PREFIX = "com.github.vlsergey.springdata.entitysecurity.";
+
+	@Category({ "Spring Data", "Entity Security" })
+	@Description("Additional database query made by SecuredJpaRepository to check entities before write operation")
+	@Label("Security Check Query")
+	@Name(NAME_PREFIX + "CheckQuery")
+	static final class CheckQueryEvent extends Event {
+		@Label("Entity Type")
+		Class<?> entityType;
+
+		@Label("Query")
+		String query;
+
+		@Label("Query Type")
+		String queryType;
+	}
+
+	@Category({ "Spring Data", "Entity Security" })
+	@Description("SecurityMixin.buildCondition() call")
+	@Label("Security Condition Build")
+	@Name(NAME_PREFIX + "ConditionBuild")
+	static final class ConditionBuildEvent extends Event {
+		@Label("Entity Type")
+		Class<?> entityType;
+	}
+
+	@Category({ "Spring Data", "Entity Security" })
+	@Description("Injection of security condition into query of derived repository method")
+	@Label("Security Condition Injection")
+	@Name(NAME_PREFIX + "ConditionInjection")
+	static final class ConditionInjectionEvent extends Event {
+		@Label("Entity Type")
+		Class<?> entityType;
+
+		@Description("PREDICATE, HIBERNATE_FILTER or ALWAYS_TRUE (nothing is injected)")
+		@Label("Injection")
+		String injection;
+
+		@Description("Number of query roots, condition is applied to the one of entity type only")
+		@Label("Roots")
+		int roots;
+	}
+
+	@Category({ "Spring Data", "Entity Security" })
+	@Description("Condition.checkEntity() call or its result taken from security check cache")
+	@Label("Security Entity Check")
+	@Name(NAME_PREFIX + "EntityCheck")
+	static final class EntityCheckEvent extends Event {
+		@Label("Allowed")
+		boolean allowed;
+
+		@Description("HIT, DENIED (cached denial), MISS or NOT_CACHEABLE")
+		@Label("Cache Outcome")
+		String cacheOutcome;
+
+		@Label("Entity Type")
+		Class<?> entityType;
+
+		@Label("Query Type")
+		String queryType;
+	}
+
+	@Override
+	public <V> V checkQuery(final @NonNull Class<?> entityType, final @NonNull QueryType queryType,
+			final @NonNull String query, final @NonNull Supplier<V> execution) {
+		final CheckQueryEvent event = new CheckQueryEvent();
+		event.begin();
+		try {
+			return execution.get();
+		} finally {
+			event.end();
+			if (event.shouldCommit()) {
+				event.entityType = entityType;
+				event.query = query;
+				event.queryType = queryType.name();
+				event.commit();
+			}
+		}
+	}
+
+	@Override
+	public <C> C conditionBuild(final @NonNull Class<?> entityType, final @NonNull Supplier<C> builder) {
+		final ConditionBuildEvent event = new ConditionBuildEvent();
+		event.begin();
+		try {
+			return builder.get();
+		} finally {
+			event.end();
+			if (event.shouldCommit()) {
+				event.entityType = entityType;
+				event.commit();
+			}
+		}
+	}
+
+	@Override
+	public <Q> Q conditionInjection(final @NonNull Class<?> entityType, final int roots,
+			final @NonNull String injection, final @NonNull Supplier<Q> createQuery) {
+		final ConditionInjectionEvent event = new ConditionInjectionEvent();
+		event.begin();
+		try {
+			return createQuery.get();
+		} finally {
+			event.end();
+			if (event.shouldCommit()) {
+				event.entityType = entityType;
+				event.injection = injection;
+				event.roots = roots;
+				event.commit();
+			}
+		}
+	}
+
+	@Override
+	public void entityCheck(final @NonNull Class<?> entityType, final @NonNull QueryType queryType,
+			final @NonNull String cacheOutcome, final @NonNull Runnable check) {
+		final EntityCheckEvent event = new EntityCheckEvent();
+		event.begin();
+		boolean allowed = false;
+		try {
+			check.run();
+			allowed = true;
+		} finally {
+			event.end();
+			if (event.shouldCommit()) {
+				event.allowed = allowed;
+				event.cacheOutcome = cacheOutcome;
+				event.entityType = entityType;
+				event.queryType = queryType.name();
+				event.commit();
+			}
+		}
+	}
+
+	@Override
+	public void entityCheckCached(final @NonNull Class<?> entityType, final @NonNull QueryType queryType,
+			final boolean allowed) {
+		final EntityCheckEvent event = new EntityCheckEvent();
+		if (event.shouldCommit()) {
+			event.allowed = allowed;
+			event.cacheOutcome = allowed ? CACHE_HIT : CACHE_DENIED;
+			event.entityType = entityType;
+			event.queryType = queryType.name();
+			event.commit();
+		}
+	}
+
+}
@@ -0,0 +1,143 @@
+package com.github.vlsergey.springdata.entitysecurity.owned;
+
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.test.context.ContextConfiguration;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Records JFR events of the security layer while repository is used by regular
+ * (neither root nor denied) user and checks their fields
+ */
+@DataJpaTest
+@ContextConfiguration(classes = TestConfiguration.class)
+class JfrSecurityEventsTest {
+
+	private static final String NAME_PREFIX = "com.github.vlsergey.springdata.entitysecurity.";
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private OwnedTestEntityRepository testRepository;
+
+	@AfterAll
+	static void clearSecurityContext() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@BeforeAll
+	static void initSecurityContext() {
+		SecurityContextHolder.setContext(new SecurityContextImpl());
+	}
+
+	private static List<RecordedEvent> eventsOf(final List<RecordedEvent> events, final String name) {
+		return events.stream().filter(event -> event.getEventType().getName().equals(NAME_PREFIX + name))
+				.collect(toList());
+	}
+
+	private static void setCurrentUser(final String user) {
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(user, null, emptyList()));
+	}
+
+	private static List<RecordedEvent> record(final Runnable runnable) throws IOException {
+		final Path file = Files.createTempFile("entity-security", ".jfr");
+		try {
+			try (Recording recording = new Recording()) {
+				Stream.of("CheckQuery", "ConditionBuild", "ConditionInjection", "EntityCheck")
+						.forEach(name -> recording.enable(NAME_PREFIX + name));
+				recording.start();
+				runnable.run();
+				recording.stop();
+				recording.dump(file);
+			}
+			return RecordingFile.readAllEvents(file);
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test
+	void eventsHaveFieldsSet() throws IOException {
+		setCurrentUser("root");
+		final OwnedTestEntity entity = new OwnedTestEntity();
+		entity.setOwner("testUser");
+		entity.setValue(42);
+		testRepository.save(entity);
+		testRepository.flush();
+		entityManager.clear();
+
+		setCurrentUser("testUser");
+		final List<RecordedEvent> events = record(() -> {
+			assertThat(testRepository.findByValue(42), hasSize(1));
+
+			// detached entity is loaded and checked in both states
+			entity.setValue(43);
+			testRepository.save(entity);
+			testRepository.flush();
+
+			final OwnedTestEntity foreign = new OwnedTestEntity();
+			foreign.setOwner("otherUser");
+			assertThrows(AccessDeniedException.class, () -> testRepository.save(foreign));
+		});
+
+		final List<RecordedEvent> builds = eventsOf(events, "ConditionBuild");
+		assertFalse(builds.isEmpty());
+		builds.forEach(event -> assertEquals(OwnedTestEntity.class.getName(),
+				event.getClass("entityType").getName()));
+
+		final List<RecordedEvent> injections = eventsOf(events, "ConditionInjection");
+		assertThat(injections, hasSize(1));
+		assertEquals(OwnedTestEntity.class.getName(), injections.get(0).getClass("entityType").getName());
+		assertEquals("PREDICATE", injections.get(0).getString("injection"));
+		assertEquals(1, injections.get(0).getInt("roots"));
+
+		final List<RecordedEvent> checkQueries = eventsOf(events, "CheckQuery");
+		assertThat(checkQueries, hasSize(1));
+		assertEquals(OwnedTestEntity.class.getName(), checkQueries.get(0).getClass("entityType").getName());
+		assertEquals("find", checkQueries.get(0).getString("query"));
+		assertEquals("UPDATE", checkQueries.get(0).getString("queryType"));
+
+		final List<RecordedEvent> checks = eventsOf(events, "EntityCheck");
+		checks.forEach(event -> assertEquals(OwnedTestEntity.class.getName(),
+				event.getClass("entityType").getName()));
+		// loaded state is checked first, new state of the same owner is taken from
+		// cache, then new entity of other owner is denied
+		assertThat(checks.stream().map(event -> event.getString("queryType")).collect(toList()),
+				contains("UPDATE", "UPDATE", "INSERT"));
+		assertThat(checks.stream().map(event -> event.getString("cacheOutcome")).collect(toList()),
+				contains("MISS", "HIT", "MISS"));
+		assertTrue(checks.get(0).getBoolean("allowed"));
+		assertTrue(checks.get(1).getBoolean("allowed"));
+		assertFalse(checks.get(2).getBoolean("allowed"));
+	}
+
+}
@@ -0,0 +1,291 @@
+package com.github.vlsergey.springdata.entitysecurity;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.ParameterExpression;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.github.vlsergey.springdata.entitysecurity.benchmark.BenchmarkConfiguration;
+import com.github.vlsergey.springdata.entitysecurity.benchmark.BenchmarkEntity;
+import com.github.vlsergey.springdata.entitysecurity.benchmark.BenchmarkEntityRepository.BenchmarkEntitySecurityMixin;
+import com.github.vlsergey.springdata.entitysecurity.benchmark.PlainBenchmarkEntityRepository;
+
+/**
+ * Compares derived query execution through {@link EntityManagerWrapperFactory}
+ * wrapper with {@link Proxy}-based wrapper of EntityManager, CriteriaBuilder
+ * and CriteriaQuery used before. Like <tt>PartTreeJpaQuery</tt> of secured
+ * repository (see {@link SecuredJpaQueryMethodFactory}), benchmarks build
+ * CriteriaQuery (via wrapped EntityManager) for each execution and pass it to
+ * {@link EntityManager#createQuery(CriteriaQuery)}, so both wrappers inject
+ * owner condition into query of single execution. Unwrapped EntityManager
+ * without any condition (<tt>wrapper=PLAIN</tt>) is the lower bound.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+public class EntityManagerWrapperBenchmark {
+
+	/**
+	 * Wrapper as it was before {@link DelegatingEntityManager}: every call of
+	 * EntityManager, CriteriaBuilder and CriteriaQuery is dispatched by method
+	 * name, roots and restriction are tracked by CriteriaQuery proxy
+	 */
+	private static final class ProxyWrapper {
+
+		private interface WrappedCriteriaQuery {
+			CriteriaQuery<?> getDelegate();
+
+			void injectConditions(SecurityMixin<?, ?> securityMixin);
+		}
+
+		private static final class CriteriaBuilderInvocationHandler implements InvocationHandler {
+			private final CriteriaBuilder original;
+
+			private CriteriaBuilderInvocationHandler(CriteriaBuilder original) {
+				this.original = original;
+			}
+
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (Objects.equals(method.getName(), "createQuery")) {
+					final CriteriaQuery<?> criteriaQuery = (CriteriaQuery<?>) method.invoke(original, args);
+					return Proxy.newProxyInstance(CLASS_LOADER,
+							new Class[] { CriteriaQuery.class, WrappedCriteriaQuery.class },
+							new CriteriaQueryHandler((CriteriaBuilder) proxy, criteriaQuery));
+				}
+				return method.invoke(original, args);
+			}
+		}
+
+		private static final class CriteriaQueryHandler implements InvocationHandler, WrappedCriteriaQuery {
+			private final CriteriaBuilder cb;
+			private final CriteriaQuery<?> original;
+			private Expression<Boolean> restrictionA = null;
+			private Predicate[] restrictionB = null;
+			private final List<Root<?>> roots = new ArrayList<>(1);
+
+			private CriteriaQueryHandler(CriteriaBuilder cb, CriteriaQuery<?> original) {
+				this.cb = cb;
+				this.original = original;
+			}
+
+			@Override
+			public CriteriaQuery<?> getDelegate() {
+				return original;
+			}
+
+			@Override
+			@SuppressWarnings({ "rawtypes", "unchecked" })
+			public void injectConditions(SecurityMixin<?, ?> securityMixin) {
+				final Condition<?, ?> condition = TransactionScopedConditions.buildCondition(securityMixin,
+						securityMixin::buildCondition);
+
+				if (roots.size() != 1 || condition.isAlwaysTrue()) {
+					if (restrictionA != null) {
+						original.where(restrictionA);
+					} else if (restrictionB != null) {
+						original.where(restrictionB);
+					} else {
+						original.where(new Predicate[0]);
+					}
+					return;
+				}
+
+				final Predicate secPredicate = condition.toPredicate((Root) roots.get(0), original, cb,
+						QueryType.SELECT);
+				if (restrictionA != null) {
+					original.where((Predicate) restrictionA, secPredicate);
+				} else if (restrictionB != null && restrictionB.length > 0) {
+					final Predicate[] joined = Arrays.copyOf(restrictionB, restrictionB.length + 1);
+					joined[restrictionB.length] = secPredicate;
+					original.where(joined);
+				} else {
+					original.where(secPredicate);
+				}
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (Objects.equals(method.getName(), "getDelegate")
+						|| Objects.equals(method.getName(), "injectConditions")) {
+					return method.invoke(this, args);
+				}
+
+				if (Objects.equals(method.getName(), "from")) {
+					final Root<?> root = (Root<?>) method.invoke(original, args);
+					roots.add(root);
+					return root;
+				}
+
+				if (Objects.equals(method.getName(), "where")) {
+					if (method.getParameterTypes()[0].isArray()) {
+						restrictionA = null;
+						restrictionB = (Predicate[]) args[0];
+					} else {
+						restrictionA = (Expression<Boolean>) args[0];
+						restrictionB = null;
+					}
+				}
+
+				final Object result = method.invoke(original, args);
+				return result == original ? proxy : result;
+			}
+		}
+
+		private static final class EntityManagerInvocationHandler implements InvocationHandler {
+			private final CriteriaBuilder criteriaBuilder;
+			private final EntityManager original;
+			private final SecurityMixin<?, ?> securityMixin;
+
+			private EntityManagerInvocationHandler(EntityManager original, SecurityMixin<?, ?> securityMixin) {
+				this.criteriaBuilder = (CriteriaBuilder) Proxy.newProxyInstance(CLASS_LOADER,
+						new Class[] { CriteriaBuilder.class },
+						new CriteriaBuilderInvocationHandler(original.getCriteriaBuilder()));
+				this.original = original;
+				this.securityMixin = securityMixin;
+			}
+
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (Objects.equals(method.getName(), "getCriteriaBuilder")) {
+					return criteriaBuilder;
+				}
+
+				if (Objects.equals(method.getName(), "createQuery") && args[0] instanceof WrappedCriteriaQuery) {
+					final WrappedCriteriaQuery wrappedCriteriaQuery = (WrappedCriteriaQuery) args[0];
+					final CriteriaQuery<?> originalQuery = wrappedCriteriaQuery.getDelegate();
+
+					synchronized (originalQuery) {
+						wrappedCriteriaQuery.injectConditions(securityMixin);
+
+						final Object[] newArgs = Arrays.copyOf(args, args.length);
+						newArgs[0] = originalQuery;
+						return method.invoke(original, newArgs);
+					}
+				}
+
+				return method.invoke(original, args);
+			}
+		}
+
+		private static final ClassLoader CLASS_LOADER = ProxyWrapper.class.getClassLoader();
+
+		static EntityManager wrap(EntityManager original, SecurityMixin<?, ?> securityMixin) {
+			return (EntityManager) Proxy.newProxyInstance(CLASS_LOADER, new Class[] { EntityManager.class },
+					new EntityManagerInvocationHandler(original, securityMixin));
+		}
+	}
+
+	private static final int ENTITIES_PER_OWNER = 100;
+
+	private ConfigurableApplicationContext context;
+
+	/**
+	 * Wrapped (or not) {@link #target}
+	 */
+	private EntityManager entityManager;
+
+	private EntityManager target;
+
+	/**
+	 * <tt>PLAIN</tt> (no wrapper and no condition), <tt>PROXY</tt> (previous
+	 * wrapper) or <tt>DELEGATING</tt> (current one)
+	 */
+	@Param({ "PLAIN", "PROXY", "DELEGATING" })
+	public String wrapper;
+
+	@Benchmark
+	public TypedQuery<BenchmarkEntity> createQuery() {
+		final CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		return entityManager.createQuery(createCriteriaQuery(cb, cb.parameter(Integer.class)));
+	}
+
+	/**
+	 * The same way as <tt>JpaQueryCreator</tt> does for
+	 * <tt>findByValue(int)</tt>
+	 */
+	private static CriteriaQuery<BenchmarkEntity> createCriteriaQuery(final CriteriaBuilder cb,
+			final ParameterExpression<Integer> valueParameter) {
+		final CriteriaQuery<BenchmarkEntity> criteriaQuery = cb.createQuery(BenchmarkEntity.class);
+		final Root<BenchmarkEntity> root = criteriaQuery.from(BenchmarkEntity.class);
+		return criteriaQuery.select(root).where(cb.equal(root.get("value"), valueParameter));
+	}
+
+	@Benchmark
+	public List<BenchmarkEntity> findByValue() {
+		final CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		final ParameterExpression<Integer> valueParameter = cb.parameter(Integer.class);
+		return entityManager.createQuery(createCriteriaQuery(cb, valueParameter)).setParameter(valueParameter, 3)
+				.getResultList();
+	}
+
+	@Setup
+	public void setup() {
+		context = BenchmarkConfiguration.start();
+
+		final PlainBenchmarkEntityRepository plainRepository = context.getBean(PlainBenchmarkEntityRepository.class);
+		for (String owner : new String[] { "other", BenchmarkEntitySecurityMixin.currentUser }) {
+			final List<BenchmarkEntity> toSave = new ArrayList<>(ENTITIES_PER_OWNER);
+			for (int i = 0; i < ENTITIES_PER_OWNER; i++) {
+				final BenchmarkEntity entity = new BenchmarkEntity();
+				entity.setOwner(owner);
+				entity.setValue(i % 10);
+				toSave.add(entity);
+			}
+			plainRepository.saveAll(toSave);
+		}
+
+		target = context.getBean(EntityManagerFactory.class).createEntityManager();
+		final SecurityMixin<?, ?> securityMixin = new BenchmarkEntitySecurityMixin();
+		switch (wrapper) {
+		case "PROXY":
+			entityManager = ProxyWrapper.wrap(target, securityMixin);
+			break;
+		case "DELEGATING":
+			entityManager = EntityManagerWrapperFactory.wrap(target, BenchmarkEntity.class, securityMixin);
+			break;
+		default:
+			entityManager = target;
+			break;
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		target.close();
+		context.close();
+	}
+
+}
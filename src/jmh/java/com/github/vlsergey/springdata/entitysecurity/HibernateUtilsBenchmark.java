@@ -0,0 +1,125 @@
+package com.github.vlsergey.springdata.entitysecurity;
+
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+import com.github.vlsergey.springdata.entitysecurity.benchmark.BenchmarkConfiguration;
+import com.github.vlsergey.springdata.entitysecurity.benchmark.BenchmarkEntity;
+
+/**
+ * Overhead of Hibernate internals access made by <tt>checkSave</tt> for each
+ * managed entity, compared with reflection-based access used before.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+public class HibernateUtilsBenchmark {
+
+	/**
+	 * Access to Hibernate as it was done before: unwrapping on each call,
+	 * {@link Method#invoke(Object, Object...)} and {@link Optional} chain
+	 */
+	private static final class ReflectiveAccess {
+		private final Class<?> sessionClass;
+		private final Method getPersistenceContextInternal;
+		private final Method getEntry;
+		private final Method isExistsInDatabase;
+
+		private ReflectiveAccess() throws ReflectiveOperationException {
+			sessionClass = Class.forName("org.hibernate.engine.spi.SharedSessionContractImplementor");
+			getPersistenceContextInternal = sessionClass.getMethod("getPersistenceContextInternal");
+			getEntry = Class.forName("org.hibernate.engine.spi.PersistenceContext").getMethod("getEntry",
+					Object.class);
+			isExistsInDatabase = Class.forName("org.hibernate.engine.spi.EntityEntry").getMethod("isExistsInDatabase");
+		}
+
+		private static Object getOrNull(Method method, Object obj, Object... args) {
+			try {
+				return method.invoke(obj, args);
+			} catch (Exception exc) {
+				return null;
+			}
+		}
+
+		private Optional<Boolean> isExistsInDatabase(EntityManager entityManager, Object entity) {
+			return Optional.ofNullable(entityManager.unwrap(sessionClass)) //
+					.map(session -> getOrNull(getPersistenceContextInternal, session)) //
+					.map(context -> getOrNull(getEntry, context, entity)) //
+					.map(entry -> (Boolean) getOrNull(isExistsInDatabase, entry));
+		}
+	}
+
+	private ConfigurableApplicationContext context;
+
+	private BenchmarkEntity entity;
+
+	private EntityManager entityManager;
+
+	private ReflectiveAccess reflectiveAccess;
+
+	private TransactionStatus transaction;
+
+	private PlatformTransactionManager transactionManager;
+
+	@Benchmark
+	public Boolean isExistsInDatabase() {
+		return HibernateUtils.isExistsInDatabase(entityManager, entity);
+	}
+
+	@Benchmark
+	public Optional<Boolean> isExistsInDatabaseReflective() {
+		return reflectiveAccess.isExistsInDatabase(entityManager, entity);
+	}
+
+	@Benchmark
+	public BenchmarkEntity loadedStateSnapshot() {
+		return HibernateUtils.getLoadedStateSnapshot(entityManager, entity);
+	}
+
+	@Setup
+	public void setup() throws ReflectiveOperationException {
+		context = BenchmarkConfiguration.start();
+		entityManager = SharedEntityManagerCreator
+				.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+		transactionManager = context.getBean(PlatformTransactionManager.class);
+		reflectiveAccess = new ReflectiveAccess();
+
+		// managed entity shall stay in persistence context during benchmark
+		transaction = transactionManager.getTransaction(new DefaultTransactionDefinition());
+		entity = new BenchmarkEntity();
+		entity.setOwner("user");
+		entityManager.persist(entity);
+		entityManager.flush();
+	}
+
+	@TearDown
+	public void tearDown() {
+		transactionManager.rollback(transaction);
+		context.close();
+	}
+
+}
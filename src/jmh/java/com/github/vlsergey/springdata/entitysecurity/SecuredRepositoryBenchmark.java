@@ -0,0 +1,183 @@
+package com.github.vlsergey.springdata.entitysecurity;
+
+import static java.util.stream.Collectors.toList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.github.vlsergey.springdata.entitysecurity.benchmark.BaseBenchmarkEntityRepository;
+import com.github.vlsergey.springdata.entitysecurity.benchmark.BenchmarkConfiguration;
+import com.github.vlsergey.springdata.entitysecurity.benchmark.BenchmarkEntity;
+import com.github.vlsergey.springdata.entitysecurity.benchmark.BenchmarkEntityRepository;
+import com.github.vlsergey.springdata.entitysecurity.benchmark.BenchmarkEntityRepository.BenchmarkEntitySecurityMixin;
+import com.github.vlsergey.springdata.entitysecurity.benchmark.BenchmarkEntityRepository.BenchmarkEntitySecurityMixin.ConditionKind;
+import com.github.vlsergey.springdata.entitysecurity.benchmark.PlainBenchmarkEntityRepository;
+import com.github.vlsergey.springdata.entitysecurity.benchmark.QBenchmarkEntity;
+
+/**
+ * Overhead of {@link SecuredJpaRepository} (including derived queries via
+ * {@link EntityManagerWrapperFactory} and Querydsl executor) compared with
+ * plain <tt>SimpleJpaRepository</tt> on the same in-memory database. Write
+ * operations are flushed and rolled back, so database content stays the same.
+ * Run with <tt>gc</tt> profiler (see <tt>build.gradle</tt>) to compare
+ * allocation rates as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Measurement(iterations = 5, time = 1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+public class SecuredRepositoryBenchmark {
+
+	private static final int BATCH_SIZE = 20;
+
+	private static final int ENTITIES_PER_OWNER = 100;
+
+	private static final String PLAIN = "PLAIN";
+
+	private ConfigurableApplicationContext context;
+
+	private EntityManager entityManager;
+
+	/**
+	 * Detached entities of current user
+	 */
+	private List<BenchmarkEntity> entities;
+
+	private List<Long> ids;
+
+	private BaseBenchmarkEntityRepository repository;
+
+	private TransactionTemplate transactionTemplate;
+
+	/**
+	 * Plain repository or secured one with condition of specified
+	 * {@link ConditionKind}
+	 */
+	@Param({ PLAIN, "ALWAYS_TRUE", "ALWAYS_FALSE", "OWNER" })
+	public String variant;
+
+	@Benchmark
+	public Object delete() {
+		return inRolledBackTransaction(() -> {
+			repository.delete(entities.get(0));
+			return null;
+		});
+	}
+
+	@Benchmark
+	public List<BenchmarkEntity> findAllById() {
+		return repository.findAllById(ids);
+	}
+
+	@Benchmark
+	public Page<BenchmarkEntity> findAllPageable() {
+		return repository.findAll(PageRequest.of(1, BATCH_SIZE));
+	}
+
+	@Benchmark
+	public Iterable<BenchmarkEntity> findAllPredicate() {
+		return repository.findAll(QBenchmarkEntity.benchmarkEntity.value.lt(2));
+	}
+
+	@Benchmark
+	public Optional<BenchmarkEntity> findById() {
+		return repository.findById(ids.get(0));
+	}
+
+	@Benchmark
+	public List<BenchmarkEntity> findByValue() {
+		return repository.findByValue(3);
+	}
+
+	/**
+	 * Denial by always-false condition is the expected result, not a failure
+	 */
+	private Object inRolledBackTransaction(final Supplier<Object> action) {
+		try {
+			return transactionTemplate.execute(status -> {
+				status.setRollbackOnly();
+				final Object result = action.get();
+				entityManager.flush();
+				return result;
+			});
+		} catch (SecurityException exc) {
+			return exc;
+		}
+	}
+
+	@Benchmark
+	public Object save() {
+		final BenchmarkEntity entity = entities.get(0);
+		entity.setValue(entity.getValue() + 1);
+		return inRolledBackTransaction(() -> repository.save(entity));
+	}
+
+	@Benchmark
+	public Object saveAll() {
+		final List<BenchmarkEntity> batch = entities.subList(0, BATCH_SIZE);
+		batch.forEach(entity -> entity.setValue(entity.getValue() + 1));
+		return inRolledBackTransaction(() -> repository.saveAll(batch));
+	}
+
+	@Setup
+	public void setup() {
+		context = BenchmarkConfiguration.start();
+		entityManager = SharedEntityManagerCreator
+				.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+		transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+		final PlainBenchmarkEntityRepository plainRepository = context.getBean(PlainBenchmarkEntityRepository.class);
+		for (String owner : new String[] { "other", BenchmarkEntitySecurityMixin.currentUser }) {
+			final List<BenchmarkEntity> toSave = new ArrayList<>(ENTITIES_PER_OWNER);
+			for (int i = 0; i < ENTITIES_PER_OWNER; i++) {
+				final BenchmarkEntity entity = new BenchmarkEntity();
+				entity.setOwner(owner);
+				entity.setValue(i % 10);
+				toSave.add(entity);
+			}
+			entities = plainRepository.saveAll(toSave);
+		}
+		ids = entities.subList(0, BATCH_SIZE).stream().map(BenchmarkEntity::getId).collect(toList());
+
+		if (PLAIN.equals(variant)) {
+			repository = plainRepository;
+		} else {
+			BenchmarkEntitySecurityMixin.conditionKind = ConditionKind.valueOf(variant);
+			repository = context.getBean(BenchmarkEntityRepository.class);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		BenchmarkEntitySecurityMixin.conditionKind = ConditionKind.OWNER;
+		context.close();
+	}
+
+}
@@ -0,0 +1,19 @@
+package com.github.vlsergey.springdata.entitysecurity.benchmark;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.querydsl.QuerydslPredicateExecutor;
+import org.springframework.data.repository.NoRepositoryBean;
+
+/**
+ * Methods shared by secured and plain repositories, so the same benchmark code
+ * can be run against both
+ */
+@NoRepositoryBean
+public interface BaseBenchmarkEntityRepository
+		extends JpaRepository<BenchmarkEntity, Long>, QuerydslPredicateExecutor<BenchmarkEntity> {
+
+	List<BenchmarkEntity> findByValue(int value);
+
+}
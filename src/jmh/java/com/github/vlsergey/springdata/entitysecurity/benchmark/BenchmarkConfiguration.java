@@ -0,0 +1,42 @@
+package com.github.vlsergey.springdata.entitysecurity.benchmark;
+
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ComponentScan.Filter;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import com.github.vlsergey.springdata.entitysecurity.SecuredJpaRepositoryFactoryBean;
+
+/**
+ * Application context with in-memory database shared by benchmarks
+ */
+@EnableAutoConfiguration
+@EnableJpaRepositories(repositoryFactoryBeanClass = SecuredJpaRepositoryFactoryBean.class, //
+		excludeFilters = @Filter(type = FilterType.ASSIGNABLE_TYPE, classes = PlainBenchmarkEntityRepository.class))
+@EntityScan
+@SpringBootConfiguration
+public class BenchmarkConfiguration {
+
+	/**
+	 * Repositories created by default Spring Data factory to compare with
+	 */
+	@Configuration
+	@EnableJpaRepositories(includeFilters = @Filter(type = FilterType.ASSIGNABLE_TYPE, //
+			classes = PlainBenchmarkEntityRepository.class))
+	static class PlainRepositoriesConfiguration {
+	}
+
+	public static ConfigurableApplicationContext start() {
+		return new SpringApplicationBuilder(BenchmarkConfiguration.class) //
+				.web(WebApplicationType.NONE) //
+				.logStartupInfo(false) //
+				.run();
+	}
+
+}
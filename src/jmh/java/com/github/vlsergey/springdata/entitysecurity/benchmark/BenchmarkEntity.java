@@ -0,0 +1,23 @@
+package com.github.vlsergey.springdata.entitysecurity.benchmark;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Entity
+@Getter
+@Setter
+public class BenchmarkEntity {
+
+	@Id
+	@GeneratedValue
+	private Long id;
+
+	private String owner;
+
+	private int value;
+
+}
@@ -0,0 +1,79 @@
+package com.github.vlsergey.springdata.entitysecurity.benchmark;
+
+import java.util.Objects;
+
+import javax.persistence.criteria.CommonAbstractCriteria;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import com.github.vlsergey.springdata.entitysecurity.ConditionWithQuerydsl;
+import com.github.vlsergey.springdata.entitysecurity.QueryType;
+import com.github.vlsergey.springdata.entitysecurity.SecuredWith;
+import com.github.vlsergey.springdata.entitysecurity.SecurityMixinWithQuerydsl;
+import com.github.vlsergey.springdata.entitysecurity.StandardConditions;
+
+@SecuredWith(BenchmarkEntityRepository.BenchmarkEntitySecurityMixin.class)
+public interface BenchmarkEntityRepository extends BaseBenchmarkEntityRepository {
+
+	class BenchmarkEntitySecurityMixin
+			implements SecurityMixinWithQuerydsl<BenchmarkEntity, BenchmarkEntityRepository> {
+
+		public enum ConditionKind {
+			ALWAYS_FALSE, ALWAYS_TRUE, OWNER
+		}
+
+		/**
+		 * Kind of condition returned by {@link #buildCondition()}
+		 */
+		public static volatile ConditionKind conditionKind = ConditionKind.OWNER;
+
+		/**
+		 * Benchmarks are not interested in obtaining current user
+		 */
+		public static volatile String currentUser = "user";
+
+		@Override
+		public ConditionWithQuerydsl<BenchmarkEntity, BenchmarkEntityRepository> buildCondition() {
+			switch (conditionKind) {
+			case ALWAYS_FALSE:
+				return StandardConditions.denyWithQuerydsl(() -> new SecurityException("No rights exception"));
+			case ALWAYS_TRUE:
+				return StandardConditions.alwaysAllowConditionWithQuerydsl();
+			default:
+				break;
+			}
+
+			final String login = currentUser;
+
+			return new ConditionWithQuerydsl<BenchmarkEntity, BenchmarkEntityRepository>() {
+
+				@Override
+				public com.querydsl.core.types.Predicate asPredicate() {
+					return QBenchmarkEntity.benchmarkEntity.owner.eq(login);
+				}
+
+				@Override
+				public void checkEntity(BenchmarkEntityRepository repository, BenchmarkEntity entity,
+						QueryType queryType) {
+					if (!Objects.equals(entity.getOwner(), login)) {
+						throw new SecurityException("No rights exception");
+					}
+				}
+
+				@Override
+				public Predicate toPredicate(Root<BenchmarkEntity> root, CommonAbstractCriteria cac,
+						CriteriaBuilder cb, QueryType queryType) {
+					return cb.equal(root.get("owner"), login);
+				}
+			};
+		}
+
+		@Override
+		public void onForbiddenOperation(BenchmarkEntity entity, QueryType queryType) {
+			throw new SecurityException("No rights exception");
+		}
+
+	}
+
+}
@@ -0,0 +1,11 @@
+package com.github.vlsergey.springdata.entitysecurity.benchmark;
+
+/**
+ * Repository without security layer: it is created by default Spring Data
+ * factory, thus backed by <tt>SimpleJpaRepository</tt>
+ *
+ * @see BenchmarkConfiguration.PlainRepositoriesConfiguration
+ */
+public interface PlainBenchmarkEntityRepository extends BaseBenchmarkEntityRepository {
+
+}
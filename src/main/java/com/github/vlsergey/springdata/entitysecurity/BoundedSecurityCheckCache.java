@@ -0,0 +1,137 @@
+package com.github.vlsergey.springdata.entitysecurity;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.lang.Nullable;
+
+import lombok.AllArgsConstructor;
+import lombok.NonNull;
+
+/**
+ * <p>
+ * Cache of checks shared among transactions and threads. Entries expire after
+ * specified time-to-live, and oldest entries are evicted when cache grows over
+ * specified maximum size (in insertion order). Successful and denied checks
+ * have separate retention settings, denied checks are not cached unless
+ * settings for them are specified.
+ *
+ * <p>
+ * Lookups are lock-free (backed by {@link ConcurrentHashMap}), thus instance
+ * can be shared by all request threads.
+ *
+ * <p>
+ * <b>Important:</b> changes of permissions (like changed owner of entity
+ * referenced by {@link Condition#getEntitySecurityCheckCacheKey(Object)}) are
+ * not seen till cached check expires. Choose time-to-live accordingly.
+ */
+public class BoundedSecurityCheckCache implements SecurityCheckCache {
+
+	private final Store allowed;
+
+	private final @Nullable Store denied;
+
+	public BoundedSecurityCheckCache(final int maximumSize, final @NonNull Duration timeToLive) {
+		this.allowed = new Store(maximumSize, timeToLive);
+		this.denied = null;
+	}
+
+	public BoundedSecurityCheckCache(final int maximumSize, final @NonNull Duration timeToLive,
+			final int maximumDeniedSize, final @NonNull Duration deniedTimeToLive) {
+		this.allowed = new Store(maximumSize, timeToLive);
+		this.denied = new Store(maximumDeniedSize, deniedTimeToLive);
+	}
+
+	@Override
+	public boolean isAllowed(final @NonNull SecurityCheckCacheKey key) {
+		return allowed.contains(key);
+	}
+
+	@Override
+	public boolean isDenied(final @NonNull SecurityCheckCacheKey key) {
+		return denied != null && denied.contains(key);
+	}
+
+	@Override
+	public void putAllowed(final @NonNull SecurityCheckCacheKey key) {
+		allowed.put(key);
+	}
+
+	@Override
+	public void putDenied(final @NonNull SecurityCheckCacheKey key) {
+		if (denied != null) {
+			denied.put(key);
+		}
+	}
+
+	int size() {
+		return allowed.entries.size() + (denied == null ? 0 : denied.entries.size());
+	}
+
+	@AllArgsConstructor
+	private static final class Entry {
+		final SecurityCheckCacheKey key;
+		final long expiresAt;
+	}
+
+	private static final class Store {
+
+		private final ConcurrentMap<SecurityCheckCacheKey, Entry> entries = new ConcurrentHashMap<>();
+
+		private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+
+		private final int maximumSize;
+
+		private final AtomicInteger queued = new AtomicInteger();
+
+		private final long timeToLiveNanos;
+
+		Store(final int maximumSize, final @NonNull Duration timeToLive) {
+			if (maximumSize < 1) {
+				throw new IllegalArgumentException("maximumSize must be positive");
+			}
+			if (timeToLive.isNegative() || timeToLive.isZero()) {
+				throw new IllegalArgumentException("timeToLive must be positive");
+			}
+
+			this.maximumSize = maximumSize;
+			this.timeToLiveNanos = timeToLive.toNanos();
+		}
+
+		boolean contains(final @NonNull SecurityCheckCacheKey key) {
+			final Entry entry = entries.get(key);
+			if (entry == null) {
+				return false;
+			}
+			if (System.nanoTime() - entry.expiresAt >= 0) {
+				entries.remove(key, entry);
+				return false;
+			}
+			return true;
+		}
+
+		void put(final @NonNull SecurityCheckCacheKey key) {
+			final Entry entry = new Entry(key, System.nanoTime() + timeToLiveNanos);
+			entries.put(key, entry);
+			insertionOrder.add(entry);
+
+			// every cached entry is present in the queue, thus bounding the queue bounds
+			// the cache. Replaced entries are just skipped on eviction.
+			if (queued.incrementAndGet() > maximumSize) {
+				while (queued.get() > maximumSize) {
+					final Entry eldest = insertionOrder.poll();
+					if (eldest == null) {
+						break;
+					}
+					queued.decrementAndGet();
+					entries.remove(eldest.key, eldest);
+				}
+			}
+		}
+	}
+
+}
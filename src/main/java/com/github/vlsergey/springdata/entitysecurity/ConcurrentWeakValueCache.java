@@ -0,0 +1,77 @@
+package com.github.vlsergey.springdata.entitysecurity;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import lombok.NonNull;
+
+/**
+ * Thread-safe cache that holds values by weak references. Entry is removed as
+ * soon as value is garbage collected, so values may (and usually do) reference
+ * their keys. Reads are lock-free, computation of missing value locks only
+ * single bin of underlying {@link ConcurrentHashMap}.
+ */
+@ThreadSafe
+final class ConcurrentWeakValueCache<K, V> {
+
+	private static final class ValueReference<K, V> extends WeakReference<V> {
+		private final K key;
+
+		private ValueReference(K key, V value, ReferenceQueue<? super V> queue) {
+			super(value, queue);
+			this.key = key;
+		}
+	}
+
+	private final ConcurrentMap<K, ValueReference<K, V>> map = new ConcurrentHashMap<>();
+
+	private final ReferenceQueue<V> queue = new ReferenceQueue<>();
+
+	V computeIfAbsent(final @NonNull K key, final @NonNull Function<? super K, ? extends V> mappingFunction) {
+		expungeStaleEntries();
+
+		final ValueReference<K, V> existing = map.get(key);
+		final V existingValue = existing == null ? null : existing.get();
+		if (existingValue != null) {
+			return existingValue;
+		}
+
+		// keep strong reference to computed value till it is returned
+		final Object[] result = new Object[1];
+		map.compute(key, (k, current) -> {
+			final V currentValue = current == null ? null : current.get();
+			if (currentValue != null) {
+				result[0] = currentValue;
+				return current;
+			}
+			final V newValue = mappingFunction.apply(k);
+			result[0] = newValue;
+			return new ValueReference<>(k, newValue, queue);
+		});
+
+		@SuppressWarnings("unchecked")
+		final V value = (V) result[0];
+		return value;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void expungeStaleEntries() {
+		Reference<? extends V> reference;
+		while ((reference = queue.poll()) != null) {
+			final ValueReference<K, V> valueReference = (ValueReference<K, V>) reference;
+			map.remove(valueReference.key, valueReference);
+		}
+	}
+
+	int size() {
+		expungeStaleEntries();
+		return map.size();
+	}
+
+}
@@ -1,6 +1,10 @@
 package com.github.vlsergey.springdata.entitysecurity;
 
+import java.util.Collections;
+import java.util.Map;
+
 import javax.annotation.concurrent.NotThreadSafe;
+import javax.persistence.PersistenceException;
 import javax.persistence.criteria.CommonAbstractCriteria;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaDelete;
@@ -9,9 +13,11 @@ import javax.persistence.criteria.CriteriaUpdate;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.lang.Nullable;
+import org.springframework.transaction.TransactionException;
 
 import lombok.NonNull;
 
@@ -46,6 +52,14 @@ public interface Condition<T, R extends JpaRepository<T, ?>> {
 		return null;
 	}
 
+	/**
+	 * @return parameters of Hibernate filter named by
+	 *         {@link SecurityMixin#getHibernateFilterName()}
+	 */
+	default Map<String, Object> getHibernateFilterParameters() {
+		return Collections.emptyMap();
+	}
+
 	/**
 	 * Throw an error if operation is not allowed for specified entity
 	 */
@@ -53,6 +67,18 @@ public interface Condition<T, R extends JpaRepository<T, ?>> {
 			final @lombok.NonNull @org.springframework.lang.NonNull T entity,
 			final @lombok.NonNull @org.springframework.lang.NonNull QueryType queryType);
 
+	/**
+	 * Tells if exception thrown by {@link #checkEntity} means that operation is
+	 * forbidden, i.e. if denial can be cached. Failures of the check itself
+	 * (query timeout, lost connection, etc.) are not cached. By default any
+	 * exception except data access, persistence and transaction ones is a
+	 * denial.
+	 */
+	default boolean isDenial(final @NonNull RuntimeException exc) {
+		return !(exc instanceof DataAccessException || exc instanceof PersistenceException
+				|| exc instanceof TransactionException);
+	}
+
 	/**
 	 * It's safe to return {@literal false} here, but returning {@literal true} will
 	 * optimize execution in some cases
@@ -0,0 +1,31 @@
+package com.github.vlsergey.springdata.entitysecurity;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * Batch delete methods of {@link JpaRepository} that return number of deleted
+ * rows. Secured repository executes them as single bulk <tt>DELETE</tt>
+ * statement with {@link QueryType#DELETE} condition applied, thus returned
+ * value may be less than number of passed entities or IDs if some of them
+ * were filtered out by security condition (or were not present in database).
+ *
+ * Extend repository interface with this one to use these methods.
+ */
+public interface CountingBatchDeleteExecutor<T, ID> {
+
+	/**
+	 * @see JpaRepository#deleteAllByIdInBatch(Iterable)
+	 */
+	int deleteAllByIdInBatchReturningCount(Iterable<ID> ids);
+
+	/**
+	 * @see JpaRepository#deleteAllInBatch()
+	 */
+	int deleteAllInBatchReturningCount();
+
+	/**
+	 * @see JpaRepository#deleteAllInBatch(Iterable)
+	 */
+	int deleteAllInBatchReturningCount(Iterable<T> entities);
+
+}
@@ -0,0 +1,55 @@
+package com.github.vlsergey.springdata.entitysecurity;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor used for parallel count queries if no executor bean name is
+ * specified by {@link SecuredWith#countExecutor()}. Has at most
+ * {@link #MAX_THREADS} threads (virtual ones if they are available, i.e. on
+ * Java 21+, otherwise daemon ones), so count queries take at most that number
+ * of database connections. Tasks not started yet are executed by callers, see
+ * {@link ParallelCountQuery}. Created on first use only.
+ */
+final class DefaultCountQueryExecutor {
+
+	/**
+	 * Less than default size of common connection pools (like HikariCP, 10
+	 * connections)
+	 */
+	static final int MAX_THREADS = 4;
+
+	static final Executor INSTANCE = create();
+
+	private static Executor create() {
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), createThreadFactory());
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	private static ThreadFactory createThreadFactory() {
+		try {
+			// methods of public interface, implementation classes are not accessible
+			final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			final Object builder = builderClass.getMethod("name", String.class, long.class)
+					.invoke(Thread.class.getMethod("ofVirtual").invoke(null), "entity-security-count-", 1L);
+			return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+		} catch (ReflectiveOperationException | LinkageError exc) {
+			final AtomicInteger threadNumber = new AtomicInteger();
+			return runnable -> {
+				final Thread thread = new Thread(runnable, "entity-security-count-" + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			};
+		}
+	}
+
+	private DefaultCountQueryExecutor() {
+	}
+
+}
@@ -1,205 +1,148 @@
 package com.github.vlsergey.springdata.entitysecurity;
 
-import static java.util.Collections.synchronizedMap;
-
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
-import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.Set;
 
 import javax.persistence.EntityManager;
-import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaQuery;
-import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.jpa.repository.query.JpaQueryCreator;
 
-import com.google.common.base.Objects;
-
 import lombok.NonNull;
 
 /**
  * There is no simple way to customize {@link JpaQueryCreator}, so we injecting
- * additional condition directly into CriteriaQuery via wrapping EntityManager,
- * CriteriaBuilder and CriteriaQuery.
+ * additional condition directly into CriteriaQuery when it is passed to
+ * wrapped EntityManager. Derived queries of secured repositories create
+ * CriteriaQuery for each execution (see {@link SecuredJpaQueryMethodFactory}),
+ * thus query is not shared with other executions and is not restored.
  *
  * Yeah, i know, it's ugly and may break any moment. Feel free to do better.
  */
 class EntityManagerWrapperFactory {
 
-	private static Map<CriteriaBuilder, CriteriaBuilder> cachedCbProxies = synchronizedMap(new WeakHashMap<>());
-	private static Map<EntityManager, Map<SecurityMixin<?, ?>, EntityManager>> cachedEmProxies = synchronizedMap(
-			new WeakHashMap<>());
-
-	private static final ClassLoader CLASS_LOADER = EntityManagerWrapperFactory.class.getClassLoader();
-
-	private static final Class<?>[] CRITERIA_BUILDER_WRAPPER_INTERFACES = new Class[] { CriteriaBuilder.class };
-	private static final Class<?>[] CRITERIA_QUERY_WRAPPER_INTERFACES = new Class[] { CriteriaQuery.class,
-			WrappedCriteriaQuery.class };
-	private static final Class<?>[] ENTITY_MANAGER_WRAPPER_INTERFACES = new Class[] { EntityManager.class };
-
-	static CriteriaBuilder wrap(final @NonNull CriteriaBuilder original) {
-		return cachedCbProxies.computeIfAbsent(original, cb -> (CriteriaBuilder) Proxy.newProxyInstance(CLASS_LOADER,
-				CRITERIA_BUILDER_WRAPPER_INTERFACES, new CriteriaBuilderInvocationHandler(cb)));
-	}
+	private static final ConcurrentWeakValueCache<WrapperKey, EntityManager> cachedWrappers = //
+			new ConcurrentWeakValueCache<>();
 
-	@SuppressWarnings("unchecked")
-	static <T> CriteriaQuery<T> wrap(final @NonNull CriteriaBuilder cb, final @NonNull CriteriaQuery<T> original) {
-		return (CriteriaQuery<T>) Proxy.newProxyInstance(CLASS_LOADER, CRITERIA_QUERY_WRAPPER_INTERFACES,
-				new CriteriaQueryHandler(cb, original));
+	static EntityManager wrap(final @NonNull EntityManager original, final @NonNull Class<?> domainType,
+			final @NonNull SecurityMixin<?, ?> securityMixin) {
+		return cachedWrappers.computeIfAbsent(new WrapperKey(original, domainType, securityMixin),
+				key -> new SecuredEntityManager(original, domainType, securityMixin));
 	}
 
-	static EntityManager wrap(final @NonNull EntityManager original, final @NonNull SecurityMixin<?, ?> securityMixin) {
-		return cachedEmProxies.computeIfAbsent(original, em -> new WeakHashMap<>()).computeIfAbsent(securityMixin,
-				sm -> (EntityManager) Proxy.newProxyInstance(CLASS_LOADER, ENTITY_MANAGER_WRAPPER_INTERFACES,
-						new EntityManagerInvocationHandler(original, securityMixin)));
-	}
-
-	private static final class CriteriaBuilderInvocationHandler implements InvocationHandler {
-		private final CriteriaBuilder original;
+	/**
+	 * Compares EntityManager, domain type and SecurityMixin by identity
+	 */
+	private static final class WrapperKey {
+		private final Class<?> domainType;
+		private final EntityManager entityManager;
+		private final SecurityMixin<?, ?> securityMixin;
 
-		private CriteriaBuilderInvocationHandler(CriteriaBuilder original) {
-			this.original = original;
+		private WrapperKey(EntityManager entityManager, Class<?> domainType, SecurityMixin<?, ?> securityMixin) {
+			this.domainType = domainType;
+			this.entityManager = entityManager;
+			this.securityMixin = securityMixin;
 		}
 
 		@Override
-		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-			if (Objects.equal(method.getName(), "createQuery")) {
-				CriteriaQuery<?> criteriaQuery = (CriteriaQuery<?>) method.invoke(original, args);
-				return wrap((CriteriaBuilder) proxy, criteriaQuery);
+		public boolean equals(Object obj) {
+			if (!(obj instanceof WrapperKey)) {
+				return false;
 			}
+			final WrapperKey other = (WrapperKey) obj;
+			return entityManager == other.entityManager && domainType == other.domainType
+					&& securityMixin == other.securityMixin;
+		}
 
-			return method.invoke(original, args);
+		@Override
+		public int hashCode() {
+			return 31 * (31 * System.identityHashCode(entityManager) + domainType.hashCode())
+					+ System.identityHashCode(securityMixin);
 		}
 	}
 
-	private static final class CriteriaQueryHandler implements InvocationHandler, WrappedCriteriaQuery {
-		private static final Predicate[] EMPTY_PREDICATES_ARRAY = new Predicate[0];
-
-		private final CriteriaBuilder cb;
-		private final CriteriaQuery<?> original;
-		private Expression<Boolean> restrictionA = null;
-		private Predicate[] restrictionB = null;
-		// we need roots to create predicates via SecurityMixin
-		private List<Root<?>> roots = new ArrayList<>(1);
+	static final class SecuredEntityManager extends DelegatingEntityManager {
+		private final Class<?> domainType;
+		private final SecurityMixin<?, ?> securityMixin;
 
-		private CriteriaQueryHandler(CriteriaBuilder cb, CriteriaQuery<?> original) {
-			this.cb = cb;
-			this.original = original;
+		SecuredEntityManager(final @NonNull EntityManager delegate, final @NonNull Class<?> domainType,
+				final @NonNull SecurityMixin<?, ?> securityMixin) {
+			super(delegate);
+			this.domainType = domainType;
+			this.securityMixin = securityMixin;
 		}
 
-		@Override
-		public CriteriaQuery<?> getDelegate() {
-			return original;
+		private boolean enableHibernateFilter(final @NonNull Condition<?, ?> condition) {
+			final String filterName = securityMixin.getHibernateFilterName();
+			return filterName != null
+					&& HibernateUtils.enableFilter(delegate, filterName, condition.getHibernateFilterParameters());
 		}
 
-		@Override
-		public void injectConditions(SecurityMixin<?, ?> securityMixin) {
-			final Condition<?, ?> сondition = securityMixin.buildCondition();
-
-			if (
-			// unsupported case
-			roots.size() != 1 || сondition.isAlwaysTrue()) {
-				if (restrictionA != null) {
-					original.where(restrictionA);
-				} else if (restrictionB != null) {
-					original.where(restrictionB);
-				} else {
-					original.where(EMPTY_PREDICATES_ARRAY);
-				}
-				return;
-			}
-
-			final Predicate secPredicate = сondition.toPredicate((Root) roots.get(0), original, cb, QueryType.SELECT);
-
-			if (restrictionA != null) {
-				original.where((Predicate) restrictionA, secPredicate);
-			} else if (restrictionB != null && restrictionB.length > 0) {
-				Predicate[] joined = new Predicate[restrictionB.length + 1];
-				Arrays.copyOf(joined, restrictionB.length + 1);
-				joined[restrictionB.length] = secPredicate;
-				original.where(joined);
-			} else {
-				original.where(secPredicate);
+		/**
+		 * Query is executed after it is returned to Spring Data, thus filter enabled
+		 * by previous calls in current transaction can not be disabled just for the
+		 * time of execution. Filter is left disabled instead, calls with regular
+		 * condition enable it again.
+		 */
+		private void disableHibernateFilter() {
+			final String filterName = securityMixin.getHibernateFilterName();
+			if (filterName != null) {
+				HibernateUtils.disableFilter(delegate, filterName);
 			}
 		}
 
-		@Override
-		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-			if (Objects.equal(method.getName(), "getDelegate") || Objects.equal(method.getName(), "injectConditions")) {
-				return method.invoke(this, args);
-			}
-
-			if (Objects.equal(method.getName(), "from")) {
-				Root<?> root = (Root<?>) method.invoke(original, args);
-				roots.add(root);
-				return root;
-			}
-
-			if (Objects.equal(method.getName(), "where")) {
-				if (method.getParameterTypes()[0].isArray()
-						&& method.getParameterTypes()[0].getComponentType().equals(Predicate.class)) {
-					restrictionA = null;
-					restrictionB = (Predicate[]) args[0];
-				} else if (method.getParameterTypes()[0].equals(Expression.class)) {
-					restrictionA = (Expression<Boolean>) args[0];
-					restrictionB = null;
+		/**
+		 * Derived queries navigate associations via joins of single root, but
+		 * additional roots are possible as well. Security predicate is always
+		 * applied to the root of repository domain type (the first one if there are
+		 * many), other roots and joins are not touched.
+		 */
+		private @NonNull Root<?> findMainRoot(final @NonNull CriteriaQuery<?> criteriaQuery) {
+			final Set<Root<?>> roots = criteriaQuery.getRoots();
+			for (Root<?> root : roots) {
+				if (domainType.equals(root.getJavaType())) {
+					return root;
 				}
 			}
-
-			final Object result = method.invoke(original, args);
-			if (result == original) {
-				return proxy;
-			}
-			return result;
-		}
-	}
-
-	private static final class EntityManagerInvocationHandler implements InvocationHandler {
-		private final @NonNull EntityManager original;
-		private final SecurityMixin<?, ?> securityMixin;
-
-		private EntityManagerInvocationHandler(@NonNull EntityManager original, SecurityMixin<?, ?> securityMixin) {
-			this.original = original;
-			this.securityMixin = securityMixin;
+			throw new InvalidDataAccessApiUsageException("Unable to apply security condition to query without root of "
+					+ domainType.getName() + " type. Query roots are: " + roots);
 		}
 
 		@Override
-		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-			if (Objects.equal(method.getName(), "getCriteriaBuilder")) {
-				return wrap(original.getCriteriaBuilder());
+		public <T> TypedQuery<T> createQuery(final CriteriaQuery<T> criteriaQuery) {
+			final Condition<?, ?> condition = TransactionScopedConditions.buildCondition(securityMixin,
+					() -> SecurityEvents.INSTANCE.conditionBuild(domainType, securityMixin::buildCondition));
+
+			final String injection = condition.isAlwaysTrue() ? SecurityEvents.INJECTION_ALWAYS_TRUE
+					: enableHibernateFilter(condition) ? SecurityEvents.INJECTION_HIBERNATE_FILTER
+							: SecurityEvents.INJECTION_PREDICATE;
+			if (condition.isAlwaysTrue()) {
+				disableHibernateFilter();
 			}
 
-			if (Objects.equal(method.getName(), "createQuery") && args[0] instanceof WrappedCriteriaQuery) {
-				final WrappedCriteriaQuery wrappedCriteriaQuery = (WrappedCriteriaQuery) args[0];
-				final CriteriaQuery<?> originalQuery = wrappedCriteriaQuery.getDelegate();
-
-				// we don't want to have problems with cross-thread executions due to
-				// CriteriaQuery caching
-				synchronized (originalQuery) {
-					wrappedCriteriaQuery.injectConditions(securityMixin);
-
-					Object[] newArgs = Arrays.copyOf(args, args.length);
-					newArgs[0] = originalQuery;
+			return SecurityEvents.INSTANCE.conditionInjection(domainType, criteriaQuery.getRoots().size(), injection,
+					() -> SecurityEvents.INJECTION_PREDICATE.equals(injection) ? createQuery(criteriaQuery, condition)
+							: delegate.createQuery(criteriaQuery));
+		}
 
-					return method.invoke(original, newArgs);
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		private <T> TypedQuery<T> createQuery(final @NonNull CriteriaQuery<T> criteriaQuery,
+				final @NonNull Condition<?, ?> condition) {
+			final Predicate secPredicate = condition.toPredicate((Root) findMainRoot(criteriaQuery), criteriaQuery,
+					delegate.getCriteriaBuilder(), QueryType.SELECT);
+			if (secPredicate != null) {
+				final Predicate restriction = criteriaQuery.getRestriction();
+				if (restriction != null) {
+					criteriaQuery.where(restriction, secPredicate);
+				} else {
+					criteriaQuery.where(secPredicate);
 				}
 			}
-
-			return method.invoke(original, args);
+			return delegate.createQuery(criteriaQuery);
 		}
 	}
 
-	private interface WrappedCriteriaQuery {
-		CriteriaQuery<?> getDelegate();
-
-		void injectConditions(SecurityMixin<?, ?> securityMixin);
-	}
-
 }
@@ -1,134 +1,467 @@
 package com.github.vlsergey.springdata.entitysecurity;
 
 import java.io.Serializable;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
+import java.util.function.Supplier;
 
 import javax.persistence.EntityManager;
-import javax.persistence.PersistenceException;
+import javax.persistence.EntityManagerFactory;
+
+import org.springframework.lang.Nullable;
+import org.springframework.orm.jpa.EntityManagerProxy;
 
 import lombok.NonNull;
 import lombok.SneakyThrows;
 
+/**
+ * Access to Hibernate internals without compile-time dependency on Hibernate.
+ * Methods are resolved once into {@link MethodHandle}s adapted to generic
+ * <tt>Object</tt> signatures, so calls have neither reflection nor allocation
+ * overhead.
+ */
 class HibernateUtils {
 
-	private static final Optional<Class<?>> CLASS_ENTITY_ENTRY = findClass("org.hibernate.engine.spi.EntityEntry");
+	/**
+	 * JDBC fetch size query hint, see
+	 * <tt>org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE</tt>. Ignored by other
+	 * JPA providers.
+	 */
+	static final String HINT_FETCH_SIZE = "org.hibernate.fetchSize";
+
+	private static final Class<?> CLASS_ENTITY_ENTRY = findClass("org.hibernate.engine.spi.EntityEntry");
+
+	private static final Class<?> CLASS_ENTITY_PERSISTER = findClass("org.hibernate.persister.entity.EntityPersister");
+
+	private static final Class<?> CLASS_FILTER = findClass("org.hibernate.Filter");
+
+	private static final Class<?> CLASS_FILTER_IMPL = findClass("org.hibernate.internal.FilterImpl");
 
-	private static final Optional<Class<?>> CLASS_PERSISTENCE_CONTEXT = findClass(
-			"org.hibernate.engine.spi.PersistenceContext");
+	private static final Class<?> CLASS_PERSISTENCE_CONTEXT = findClass("org.hibernate.engine.spi.PersistenceContext");
 
-	private static final Optional<Class<?>> CLASS_SESSION = findClass("org.hibernate.Session");
+	private static final Class<?> CLASS_SESSION = findClass("org.hibernate.Session");
 
-	private static final Optional<Class<?>> CLASS_SHARED_SESSION_CONTRACT_IMPLEMENTOR = findClass(
+	private static final Class<?> CLASS_SESSION_FACTORY_IMPLEMENTOR = findClass(
+			"org.hibernate.engine.spi.SessionFactoryImplementor");
+
+	private static final Class<?> CLASS_SHARED_SESSION_CONTRACT_IMPLEMENTOR = findClass(
 			"org.hibernate.engine.spi.SharedSessionContractImplementor");
 
-	private static final Optional<Method> METHOD_ENTITY_ENTRY_IS_EXISTS_IN_DATABASE = findMethod(CLASS_ENTITY_ENTRY,
+	private static final Class<?> CLASS_SQL_FUNCTION_REGISTRY = findClass(
+			"org.hibernate.dialect.function.SQLFunctionRegistry");
+
+	private static final MethodHandle METHOD_ENTITY_ENTRY_GET_ID = findMethod(CLASS_ENTITY_ENTRY, "getId");
+
+	private static final MethodHandle METHOD_ENTITY_ENTRY_GET_LOADED_STATE = findMethod(CLASS_ENTITY_ENTRY,
+			"getLoadedState");
+
+	private static final MethodHandle METHOD_ENTITY_ENTRY_GET_PERSISTER = findMethod(CLASS_ENTITY_ENTRY,
+			"getPersister");
+
+	private static final MethodHandle METHOD_ENTITY_ENTRY_IS_EXISTS_IN_DATABASE = findMethod(CLASS_ENTITY_ENTRY,
 			"isExistsInDatabase");
 
-	private static final Optional<Method> METHOD_PERSISTENCE_CONTEXT_GET_ENTRY = findMethod(CLASS_PERSISTENCE_CONTEXT,
+	private static final MethodHandle METHOD_ENTITY_PERSISTER_HAS_COLLECTIONS = findMethod(CLASS_ENTITY_PERSISTER,
+			"hasCollections");
+
+	private static final MethodHandle METHOD_ENTITY_PERSISTER_INSTANTIATE = findMethodByParameterTypeNames(
+			CLASS_ENTITY_PERSISTER, "instantiate", Serializable.class.getName(),
+			"org.hibernate.engine.spi.SharedSessionContractImplementor");
+
+	private static final MethodHandle METHOD_ENTITY_PERSISTER_SET_PROPERTY_VALUES = findMethod(CLASS_ENTITY_PERSISTER,
+			"setPropertyValues", Object.class, Object[].class);
+
+	// returns the same filter, result is not used
+	private static final MethodHandle METHOD_FILTER_SET_PARAMETER = withoutResult(
+			findMethod(CLASS_FILTER, "setParameter", String.class, Object.class));
+
+	private static final MethodHandle METHOD_FILTER_IMPL_GET_PARAMETERS = findMethod(CLASS_FILTER_IMPL,
+			"getParameters");
+
+	private static final MethodHandle METHOD_FILTER_VALIDATE = findMethod(CLASS_FILTER, "validate");
+
+	private static final MethodHandle METHOD_PERSISTENCE_CONTEXT_GET_ENTRY = findMethod(CLASS_PERSISTENCE_CONTEXT,
 			"getEntry", Object.class);
 
-	private static final Optional<Method> METHOD_SESSION_GET_IDENTIFIER = findMethod(CLASS_SESSION, "getIdentifier",
+	private static final MethodHandle METHOD_SESSION_DISABLE_FILTER = findMethod(CLASS_SESSION, "disableFilter",
+			String.class);
+
+	private static final MethodHandle METHOD_SESSION_ENABLE_FILTER = findMethod(CLASS_SESSION, "enableFilter",
+			String.class);
+
+	private static final MethodHandle METHOD_SESSION_GET_ENABLED_FILTER = findMethod(CLASS_SESSION,
+			"getEnabledFilter", String.class);
+
+	private static final MethodHandle METHOD_SESSION_GET_IDENTIFIER = findMethod(CLASS_SESSION, "getIdentifier",
 			Object.class);
 
-	private static final Optional<Method> METHOD_SHARED_SESSION_CONTRACT_IMPLEMENTOR_GET_PERSISTENCE_CONTEXT_INTERNAL = findMethod(
+	private static final MethodHandle METHOD_SESSION_FACTORY_IMPLEMENTOR_GET_SQL_FUNCTION_REGISTRY = findMethod(
+			CLASS_SESSION_FACTORY_IMPLEMENTOR, "getSqlFunctionRegistry");
+
+	private static final MethodHandle METHOD_SHARED_SESSION_CONTRACT_IMPLEMENTOR_GET_PERSISTENCE_CONTEXT_INTERNAL = findMethod(
 			CLASS_SHARED_SESSION_CONTRACT_IMPLEMENTOR, "getPersistenceContextInternal");
 
+	private static final MethodHandle METHOD_SQL_FUNCTION_REGISTRY_FIND_SQL_FUNCTION = findMethod(
+			CLASS_SQL_FUNCTION_REGISTRY, "findSQLFunction", String.class);
+
+	/**
+	 * Enables Hibernate filter in current session (i.e. till the end of current
+	 * transaction) and sets its parameters. If filter is already enabled its
+	 * parameters are replaced.
+	 *
+	 * @return {@literal false} if JPA provider is not Hibernate or there is no
+	 *         transactional session, i.e. filter is not enabled
+	 */
+	@SneakyThrows
+	static boolean enableFilter(final @NonNull EntityManager entityManager, final @NonNull String filterName,
+			final @NonNull Map<String, ?> parameters) {
+		if (METHOD_SESSION_ENABLE_FILTER == null || METHOD_FILTER_SET_PARAMETER == null
+				|| METHOD_FILTER_VALIDATE == null) {
+			return false;
+		}
+
+		final Object session = toSharedSessionContractImplementor(entityManager);
+		if (!CLASS_SESSION.isInstance(session)) {
+			return false;
+		}
+
+		final Object filter = (Object) METHOD_SESSION_ENABLE_FILTER.invokeExact(session, (Object) filterName);
+		for (Map.Entry<String, ?> parameter : parameters.entrySet()) {
+			METHOD_FILTER_SET_PARAMETER.invokeExact(filter, (Object) parameter.getKey(), (Object) parameter.getValue());
+		}
+		METHOD_FILTER_VALIDATE.invokeExact(filter);
+		return true;
+	}
+
+	/**
+	 * Disables Hibernate filter in current session if it is enabled. Does nothing
+	 * if JPA provider is not Hibernate or there is no transactional session.
+	 */
+	@SneakyThrows
+	static void disableFilter(final @NonNull EntityManager entityManager, final @NonNull String filterName) {
+		if (METHOD_SESSION_DISABLE_FILTER == null) {
+			return;
+		}
+
+		final Object session = toSharedSessionContractImplementor(entityManager);
+		if (CLASS_SESSION.isInstance(session)) {
+			METHOD_SESSION_DISABLE_FILTER.invokeExact(session, (Object) filterName);
+		}
+	}
+
+	/**
+	 * Disables Hibernate filter in current session for the time of execution, so
+	 * queries made by execution are not restricted by it, and enables it back with
+	 * the same parameters afterwards. Does nothing but execution if filter is not
+	 * enabled or JPA provider is not Hibernate.
+	 */
+	@SneakyThrows
 	@SuppressWarnings("unchecked")
-	static <T> Optional<Class<? extends T>> findClass(final @NonNull String className) {
+	static <V> V withFilterDisabled(final @NonNull EntityManager entityManager, final @NonNull String filterName,
+			final @NonNull Supplier<V> execution) {
+		if (METHOD_SESSION_DISABLE_FILTER == null || METHOD_SESSION_GET_ENABLED_FILTER == null) {
+			return execution.get();
+		}
+
+		final Object session = toSharedSessionContractImplementor(entityManager);
+		if (!CLASS_SESSION.isInstance(session)) {
+			return execution.get();
+		}
+
+		final Object filter = (Object) METHOD_SESSION_GET_ENABLED_FILTER.invokeExact(session, (Object) filterName);
+		if (filter == null) {
+			return execution.get();
+		}
+
+		// parameters are unknown if filter implementation is not the expected one,
+		// then it is left disabled: execution must not be restricted by it anyway
+		final Map<String, ?> parameters = METHOD_FILTER_IMPL_GET_PARAMETERS != null
+				&& CLASS_FILTER_IMPL.isInstance(filter)
+						? new HashMap<>((Map<String, ?>) (Object) METHOD_FILTER_IMPL_GET_PARAMETERS.invokeExact(filter))
+						: null;
+
+		METHOD_SESSION_DISABLE_FILTER.invokeExact(session, (Object) filterName);
 		try {
-			return Optional.of((Class<T>) Class.forName(className));
-		} catch (Exception exc) {
-			return Optional.empty();
+			return execution.get();
+		} finally {
+			if (parameters != null) {
+				enableFilter(entityManager, filterName, parameters);
+			}
+		}
+	}
+
+	static @Nullable Class<?> findClass(final @NonNull String className) {
+		try {
+			return Class.forName(className);
+		} catch (Exception | LinkageError exc) {
+			return null;
 		}
 	}
 
-	static Optional<Method> findMethod(Optional<Class<?>> cls, String methodName, Class<?>... paramArgsClasses) {
-		return cls.flatMap(c -> Arrays.stream(c.getMethods()) //
+	static @Nullable MethodHandle findMethod(final @Nullable Class<?> cls, final @NonNull String methodName,
+			final @NonNull Class<?>... paramArgsClasses) {
+		return findMethodByParameterTypeNames(cls, methodName,
+				Arrays.stream(paramArgsClasses).map(Class::getName).toArray(String[]::new));
+	}
+
+	/**
+	 * @return handle with all arguments and result (if any) converted to
+	 *         <tt>Object</tt>, i.e. it can be invoked with
+	 *         {@link MethodHandle#invokeExact(Object...)} using <tt>Object</tt>
+	 *         arguments and casting result to <tt>Object</tt>.
+	 */
+	static @Nullable MethodHandle findMethodByParameterTypeNames(final @Nullable Class<?> cls,
+			final @NonNull String methodName, final @NonNull String... paramArgsClassNames) {
+		if (cls == null) {
+			return null;
+		}
+
+		final Method found = Arrays.stream(cls.getMethods()) //
 				.filter(method -> Objects.equals(method.getName(), methodName))
-				.filter(method -> method.getParameterCount() == paramArgsClasses.length) //
+				.filter(method -> method.getParameterCount() == paramArgsClassNames.length) //
 				.filter(method -> {
 					Class<?>[] parameterTypes = method.getParameterTypes();
 					for (int i = 0; i < parameterTypes.length; i++) {
 						Class<?> arg = parameterTypes[i];
-						if (!Objects.equals(arg.getName(), paramArgsClasses[i].getName())) {
+						if (!Objects.equals(arg.getName(), paramArgsClassNames[i])) {
 							return false;
 						}
 					}
 					return true;
-				}).findAny());
+				}).findAny().orElse(null);
+		if (found == null) {
+			return null;
+		}
+
+		try {
+			final MethodHandle handle = MethodHandles.publicLookup().unreflect(found);
+			final Class<?> returnType = found.getReturnType() == void.class ? void.class : Object.class;
+			return handle.asType(MethodType.genericMethodType(paramArgsClassNames.length + 1).changeReturnType(returnType));
+		} catch (IllegalAccessException exc) {
+			return null;
+		}
 	}
 
-	private static Optional<Object> getEntry(final @NonNull Object persistenceContext, final @NonNull Object entity) {
-		return METHOD_PERSISTENCE_CONTEXT_GET_ENTRY.map(method -> getOrNull(method, persistenceContext, entity));
+	private static @Nullable MethodHandle withoutResult(final @Nullable MethodHandle handle) {
+		return handle == null ? null : handle.asType(handle.type().changeReturnType(void.class));
 	}
 
+	/**
+	 * Errors (like {@link OutOfMemoryError} or {@link LinkageError}) are
+	 * rethrown, only runtime exceptions are treated as "entry is not available".
+	 */
 	@SneakyThrows
-	static <ID extends Serializable> Optional<ID> getIdentifier(final @NonNull EntityManager entityManager,
+	private static @Nullable Object getEntry(final @NonNull Object persistenceContext, final @NonNull Object entity) {
+		try {
+			return (Object) METHOD_PERSISTENCE_CONTEXT_GET_ENTRY.invokeExact(persistenceContext, entity);
+		} catch (RuntimeException exc) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return {@literal null} if JPA provider is not Hibernate or there is no
+	 *         transactional session
+	 */
+	@SneakyThrows
+	static @Nullable <ID extends Serializable> ID getIdentifier(final @NonNull EntityManager entityManager,
 			Object entity) {
-		if (!CLASS_SESSION.isPresent() || !METHOD_SESSION_GET_IDENTIFIER.isPresent()) {
-			return Optional.empty();
+		if (METHOD_SESSION_GET_IDENTIFIER == null) {
+			return null;
 		}
 
-		Object session;
-		try {
-			session = entityManager.unwrap(CLASS_SESSION.get());
-		} catch (PersistenceException exc) {
-			return Optional.empty();
+		final Object session = toSharedSessionContractImplementor(entityManager);
+		if (!CLASS_SESSION.isInstance(session)) {
+			return null;
 		}
 
+		@SuppressWarnings("unchecked")
+		final ID id = (ID) (Object) METHOD_SESSION_GET_IDENTIFIER.invokeExact(session, entity);
+		return id;
+	}
+
+	/**
+	 * Errors are rethrown, only runtime exceptions are treated as "value is not
+	 * available".
+	 */
+	@SneakyThrows
+	private static @Nullable Object getOrNull(final @NonNull MethodHandle getter, final @NonNull Object obj) {
 		try {
-			@SuppressWarnings("unchecked")
-			final ID id = (ID) METHOD_SESSION_GET_IDENTIFIER.get().invoke(session, entity);
-			return Optional.of(id);
-		} catch (InvocationTargetException exc) {
-			throw exc.getTargetException();
+			return (Object) getter.invokeExact(obj);
+		} catch (RuntimeException exc) {
+			return null;
 		}
 	}
 
+	/**
+	 * Creates new (not managed) instance of entity class with the state entity had
+	 * when it was loaded from database (or last flushed into it). Hibernate keeps
+	 * such "loaded state" in persistence context to detect dirty entities, thus no
+	 * database query is made.
+	 *
+	 * <p>
+	 * Loaded state of collection properties is the same live
+	 * <tt>PersistentCollection</tt> instance entity has, i.e. it includes
+	 * changes not flushed yet. Thus snapshot is not created for entities with
+	 * collections (even ones in embeddables): it would let user grant himself
+	 * access by adding to collection checked by condition.
+	 *
+	 * @return {@literal null} if JPA provider is not Hibernate, entity is not
+	 *         managed by current persistence context, entity has collection
+	 *         properties or loaded state is not available (like for read-only
+	 *         entities)
+	 */
 	@SneakyThrows
-	@SuppressWarnings("unchecked")
-	private static <T> T getOrNull(final @NonNull Method method, Object obj, final @NonNull Class<T> resultClass,
-			final @NonNull Object... args) {
+	static @Nullable <T> T getLoadedStateSnapshot(final @NonNull EntityManager entityManager,
+			final @NonNull T entity) {
+		if (METHOD_ENTITY_PERSISTER_HAS_COLLECTIONS == null || METHOD_ENTITY_PERSISTER_INSTANTIATE == null
+				|| METHOD_ENTITY_PERSISTER_SET_PROPERTY_VALUES == null
+				|| METHOD_ENTITY_ENTRY_GET_ID == null || METHOD_ENTITY_ENTRY_GET_LOADED_STATE == null
+				|| METHOD_ENTITY_ENTRY_GET_PERSISTER == null) {
+			return null;
+		}
+
+		final Object session = toSharedSessionContractImplementor(entityManager);
+		if (session == null) {
+			return null;
+		}
+
+		final Object entityEntry = getEntityEntry(session, entity);
+		if (entityEntry == null) {
+			return null;
+		}
+
+		final Object loadedState = getOrNull(METHOD_ENTITY_ENTRY_GET_LOADED_STATE, entityEntry);
+		final Object persister = getOrNull(METHOD_ENTITY_ENTRY_GET_PERSISTER, entityEntry);
+		final Object id = getOrNull(METHOD_ENTITY_ENTRY_GET_ID, entityEntry);
+		if (loadedState == null || persister == null || id == null) {
+			return null;
+		}
+		if (!Boolean.FALSE.equals(getOrNull(METHOD_ENTITY_PERSISTER_HAS_COLLECTIONS, persister))) {
+			return null;
+		}
+
+		final Object snapshot;
 		try {
-			return (T) method.invoke(obj, args);
-		} catch (Exception exc) {
+			snapshot = (Object) METHOD_ENTITY_PERSISTER_INSTANTIATE.invokeExact(persister, id, session);
+			if (snapshot == null) {
+				return null;
+			}
+			METHOD_ENTITY_PERSISTER_SET_PROPERTY_VALUES.invokeExact(persister, snapshot, loadedState);
+		} catch (RuntimeException exc) {
+			// partially filled snapshot must not be used for security checks
 			return null;
 		}
+
+		@SuppressWarnings("unchecked")
+		final T result = (T) snapshot;
+		return result;
 	}
 
-	@SneakyThrows
-	private static Object getOrNull(Method method, Object obj, Object... args) {
-		return getOrNull(method, obj, Object.class, args);
+	private static @Nullable Object getEntityEntry(final @NonNull Object session, final @NonNull Object entity) {
+		if (METHOD_SHARED_SESSION_CONTRACT_IMPLEMENTOR_GET_PERSISTENCE_CONTEXT_INTERNAL == null
+				|| METHOD_PERSISTENCE_CONTEXT_GET_ENTRY == null) {
+			return null;
+		}
+
+		final Object persistenceContext = getOrNull(
+				METHOD_SHARED_SESSION_CONTRACT_IMPLEMENTOR_GET_PERSISTENCE_CONTEXT_INTERNAL, session);
+		if (persistenceContext == null) {
+			return null;
+		}
+		return getEntry(persistenceContext, entity);
 	}
 
-	private static Optional<Object> getPersistenceContextInternal(final @NonNull Object hibernateSession) {
-		return METHOD_SHARED_SESSION_CONTRACT_IMPLEMENTOR_GET_PERSISTENCE_CONTEXT_INTERNAL
-				.map(method -> getOrNull(method, hibernateSession));
+	/**
+	 * @return {@literal true} if SQL function with specified name is registered
+	 *         in Hibernate session factory (by dialect or by user), i.e. it can
+	 *         be used in criteria queries. {@literal false} if JPA provider is
+	 *         not Hibernate.
+	 */
+	@SneakyThrows
+	static boolean isSqlFunctionRegistered(final @NonNull EntityManagerFactory entityManagerFactory,
+			final @NonNull String functionName) {
+		if (METHOD_SESSION_FACTORY_IMPLEMENTOR_GET_SQL_FUNCTION_REGISTRY == null
+				|| METHOD_SQL_FUNCTION_REGISTRY_FIND_SQL_FUNCTION == null) {
+			return false;
+		}
+
+		final Object sessionFactory;
+		try {
+			sessionFactory = entityManagerFactory.unwrap(CLASS_SESSION_FACTORY_IMPLEMENTOR);
+		} catch (Exception exc) {
+			return false;
+		}
+
+		final Object registry = getOrNull(METHOD_SESSION_FACTORY_IMPLEMENTOR_GET_SQL_FUNCTION_REGISTRY, sessionFactory);
+		if (registry == null) {
+			return false;
+		}
+		try {
+			return (Object) METHOD_SQL_FUNCTION_REGISTRY_FIND_SQL_FUNCTION.invokeExact(registry,
+					(Object) functionName) != null;
+		} catch (RuntimeException exc) {
+			return false;
+		}
 	}
 
-	static Optional<Boolean> isExistsInDatabase(final @NonNull EntityManager entityManager,
+	/**
+	 * @return {@literal null} if JPA provider is not Hibernate or entity is not
+	 *         managed by current persistence context
+	 */
+	static @Nullable Boolean isExistsInDatabase(final @NonNull EntityManager entityManager,
 			final @NonNull Object entity) {
-		return toSharedSessionContractImplementor(entityManager) //
-				.flatMap(HibernateUtils::getPersistenceContextInternal) //
-				.flatMap(context -> getEntry(context, entity)) //
-				.flatMap(HibernateUtils::isExistsInDatabase);
-	}
+		if (METHOD_ENTITY_ENTRY_IS_EXISTS_IN_DATABASE == null) {
+			return null;
+		}
 
-	private static Optional<Boolean> isExistsInDatabase(final @NonNull Object entityEntry) {
-		return METHOD_ENTITY_ENTRY_IS_EXISTS_IN_DATABASE.map(method -> getOrNull(method, entityEntry, boolean.class));
+		final Object session = toSharedSessionContractImplementor(entityManager);
+		if (session == null) {
+			return null;
+		}
+
+		final Object entityEntry = getEntityEntry(session, entity);
+		if (entityEntry == null) {
+			return null;
+		}
+
+		return (Boolean) getOrNull(METHOD_ENTITY_ENTRY_IS_EXISTS_IN_DATABASE, entityEntry);
 	}
 
-	private static Optional<Object> toSharedSessionContractImplementor(final @NonNull EntityManager entityManager) {
-		return CLASS_SHARED_SESSION_CONTRACT_IMPLEMENTOR.map(sessionImplClass -> {
+	/**
+	 * Spring shared EntityManager resolves transactional EntityManager on each
+	 * call, so we take it once from {@link EntityManagerProxy}. Hibernate
+	 * <tt>SessionImpl</tt> is EntityManager itself, thus usually no unwrapping
+	 * is needed.
+	 */
+	private static @Nullable Object toSharedSessionContractImplementor(final @NonNull EntityManager entityManager) {
+		if (CLASS_SHARED_SESSION_CONTRACT_IMPLEMENTOR == null) {
+			return null;
+		}
+
+		EntityManager target = entityManager;
+		if (entityManager instanceof EntityManagerProxy) {
 			try {
-				return entityManager.unwrap(sessionImplClass);
-			} catch (Exception exc) {
+				target = ((EntityManagerProxy) entityManager).getTargetEntityManager();
+			} catch (IllegalStateException exc) {
+				// no transactional EntityManager, thus no managed entities
 				return null;
 			}
-		});
+		}
+
+		if (CLASS_SHARED_SESSION_CONTRACT_IMPLEMENTOR.isInstance(target)) {
+			return target;
+		}
+		try {
+			return target.unwrap(CLASS_SHARED_SESSION_CONTRACT_IMPLEMENTOR);
+		} catch (Exception exc) {
+			return null;
+		}
 	}
 }
@@ -0,0 +1,33 @@
+package com.github.vlsergey.springdata.entitysecurity;
+
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.lang.Nullable;
+
+/**
+ * Keyset (seek) pagination. Instead of skipping <tt>OFFSET</tt> rows next page
+ * is selected with condition on sort properties of the last entity of previous
+ * page, like <tt>where (value &gt; :lastValue) or (value = :lastValue and id
+ * &gt; :lastId) order by value, id</tt>. Secured repository adds
+ * {@link QueryType#SELECT} condition to the same query. No count query is
+ * executed, thus result is {@link Slice}, not a page.
+ *
+ * Extend repository interface with this one to use these methods.
+ */
+public interface KeysetPaginationExecutor<T> {
+
+	/**
+	 * @param spec  additional condition, can be {@literal null}
+	 * @param sort  order of entities. Entity ID is always added as the last sort
+	 *              property to make order unique. Sort properties must not be
+	 *              case-insensitive and must not have {@literal null} values.
+	 * @param last  last entity of previous slice, {@literal null} to get the
+	 *              first one
+	 * @param limit maximum number of entities in slice, must be positive
+	 * @return slice of entities, use {@link Slice#hasNext()} to check if there
+	 *         are more of them
+	 */
+	Slice<T> findAllAfter(@Nullable Specification<T> spec, Sort sort, @Nullable T last, int limit);
+
+}
@@ -0,0 +1,119 @@
+package com.github.vlsergey.springdata.entitysecurity;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.BeanFactory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.NonNull;
+
+/**
+ * Micrometer meters of the security layer, tagged with <tt>repository</tt>
+ * (simple name of repository interface) and, where applicable,
+ * <tt>queryType</tt>:
+ * <ul>
+ * <li><tt>entity.security.condition.build</tt> &mdash; time of
+ * {@link SecurityMixin#buildCondition()} calls (memoized conditions are not
+ * built again, thus not timed)
+ * <li><tt>entity.security.condition.shortcircuit</tt> &mdash; number of
+ * operations made without applying condition, with <tt>result</tt> tag
+ * <tt>unrestricted</tt> (condition is always true, database is queried without
+ * security restriction) or <tt>denied</tt> (condition is always false, result
+ * is returned without database queries)
+ * <li><tt>entity.security.check</tt> &mdash; time of
+ * {@link Condition#checkEntity} calls
+ * <li><tt>entity.security.check.cache</tt> &mdash; number of
+ * {@link SecurityCheckCache} lookups with <tt>result</tt> tag <tt>hit</tt>,
+ * <tt>deny</tt> (cached denial) or <tt>miss</tt>
+ * <li><tt>entity.security.check.queries</tt> &mdash; number of additional
+ * database queries made to check entities before write operations
+ * </ul>
+ * All meters are registered when repository is created, so no lookups are
+ * made during operations.
+ */
+class MicrometerSecurityMetrics implements SecurityMetrics {
+
+	static @NonNull SecurityMetrics forRepository(final @NonNull BeanFactory beanFactory,
+			final @NonNull Class<?> repositoryInterface) {
+		final MeterRegistry registry = beanFactory.getBeanProvider(MeterRegistry.class).getIfUnique();
+		if (registry == null) {
+			return NOOP;
+		}
+		return new MicrometerSecurityMetrics(registry, repositoryInterface);
+	}
+
+	private final Map<QueryType, Counter> cacheDenied = new EnumMap<>(QueryType.class);
+
+	private final Map<QueryType, Counter> cacheHit = new EnumMap<>(QueryType.class);
+
+	private final Map<QueryType, Counter> cacheMiss = new EnumMap<>(QueryType.class);
+
+	private final Map<QueryType, Counter> checkQueries = new EnumMap<>(QueryType.class);
+
+	private final Map<QueryType, Timer> checkTimers = new EnumMap<>(QueryType.class);
+
+	private final Timer conditionBuildTimer;
+
+	private final Map<QueryType, Counter> shortCircuitDenied = new EnumMap<>(QueryType.class);
+
+	private final Map<QueryType, Counter> shortCircuitUnrestricted = new EnumMap<>(QueryType.class);
+
+	MicrometerSecurityMetrics(final @NonNull MeterRegistry registry, final @NonNull Class<?> repositoryInterface) {
+		final Tags repositoryTags = Tags.of("repository", repositoryInterface.getSimpleName());
+		this.conditionBuildTimer = registry.timer("entity.security.condition.build", repositoryTags);
+
+		for (QueryType queryType : QueryType.values()) {
+			final Tags tags = repositoryTags.and("queryType", queryType.name());
+			cacheDenied.put(queryType, registry.counter("entity.security.check.cache", tags.and("result", "deny")));
+			cacheHit.put(queryType, registry.counter("entity.security.check.cache", tags.and("result", "hit")));
+			cacheMiss.put(queryType, registry.counter("entity.security.check.cache", tags.and("result", "miss")));
+			checkQueries.put(queryType, registry.counter("entity.security.check.queries", tags));
+			checkTimers.put(queryType, registry.timer("entity.security.check", tags));
+			shortCircuitDenied.put(queryType,
+					registry.counter("entity.security.condition.shortcircuit", tags.and("result", "denied")));
+			shortCircuitUnrestricted.put(queryType,
+					registry.counter("entity.security.condition.shortcircuit", tags.and("result", "unrestricted")));
+		}
+	}
+
+	@Override
+	public void checkCacheHit(final @NonNull QueryType queryType, final boolean allowed) {
+		(allowed ? cacheHit : cacheDenied).get(queryType).increment();
+	}
+
+	@Override
+	public void checkCacheMiss(final @NonNull QueryType queryType) {
+		cacheMiss.get(queryType).increment();
+	}
+
+	@Override
+	public void checkQueryExecuted(final @NonNull QueryType queryType) {
+		checkQueries.get(queryType).increment();
+	}
+
+	@Override
+	public void conditionBuilt(final long startNanos) {
+		conditionBuildTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void conditionShortCircuited(final @NonNull QueryType queryType, final boolean alwaysTrue) {
+		(alwaysTrue ? shortCircuitUnrestricted : shortCircuitDenied).get(queryType).increment();
+	}
+
+	@Override
+	public void entityChecked(final @NonNull QueryType queryType, final long startNanos) {
+		checkTimers.get(queryType).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public long startTimer() {
+		return System.nanoTime();
+	}
+
+}
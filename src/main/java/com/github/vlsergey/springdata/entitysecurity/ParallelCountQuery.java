@@ -0,0 +1,93 @@
+package com.github.vlsergey.springdata.entitysecurity;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToLongFunction;
+
+import javax.persistence.EntityManager;
+
+import lombok.NonNull;
+
+/**
+ * Count query executed in parallel with page content query. Count uses own
+ * {@link EntityManager} (thus own database connection), because neither
+ * EntityManager nor JDBC connection can be used by two threads at once.
+ *
+ * <p>
+ * If executor has not started count query by the time its result is needed
+ * (all threads are busy or task is rejected), count is executed by caller
+ * thread with caller {@link EntityManager} instead. Thus caller never waits for
+ * a free thread while holding a connection, and with executor having fewer
+ * threads than connection pool, count queries can not take all connections
+ * needed by callers to complete.
+ *
+ * @see SecuredWith#parallelCount()
+ */
+final class ParallelCountQuery {
+
+	private final @NonNull EntityManager callerEntityManager;
+
+	private final @NonNull ToLongFunction<EntityManager> count;
+
+	private final @NonNull CompletableFuture<Long> future = new CompletableFuture<>();
+
+	private final @NonNull AtomicBoolean started = new AtomicBoolean();
+
+	/**
+	 * Starts count query. Query shall not depend on thread-bound state (like
+	 * security context), thus security condition must be built by caller.
+	 */
+	ParallelCountQuery(final @NonNull EntityManager callerEntityManager, final @NonNull Executor executor,
+			final @NonNull ToLongFunction<EntityManager> count) {
+		this.callerEntityManager = callerEntityManager;
+		this.count = count;
+
+		try {
+			executor.execute(() -> {
+				if (!started.compareAndSet(false, true)) {
+					// already executed by caller
+					return;
+				}
+				try {
+					final EntityManager entityManager = callerEntityManager.getEntityManagerFactory()
+							.createEntityManager();
+					try {
+						future.complete(count.applyAsLong(entityManager));
+					} finally {
+						entityManager.close();
+					}
+				} catch (Throwable exc) {
+					future.completeExceptionally(exc);
+				}
+			});
+		} catch (RejectedExecutionException exc) {
+			// count will be executed by caller on join()
+		}
+	}
+
+	/**
+	 * Waits for count query result, rethrowing its exception if any. Executes
+	 * count query in current thread if it is not started yet.
+	 */
+	long join() {
+		if (started.compareAndSet(false, true)) {
+			return count.applyAsLong(callerEntityManager);
+		}
+
+		try {
+			return future.join();
+		} catch (CompletionException exc) {
+			if (exc.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) exc.getCause();
+			}
+			if (exc.getCause() instanceof Error) {
+				throw (Error) exc.getCause();
+			}
+			throw exc;
+		}
+	}
+
+}
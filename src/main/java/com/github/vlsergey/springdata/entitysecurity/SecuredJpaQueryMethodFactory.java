@@ -0,0 +1,82 @@
+package com.github.vlsergey.springdata.entitysecurity;
+
+import java.lang.reflect.Method;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.provider.QueryExtractor;
+import org.springframework.data.jpa.repository.query.JpaParameters;
+import org.springframework.data.jpa.repository.query.JpaQueryMethod;
+import org.springframework.data.jpa.repository.query.JpaQueryMethodFactory;
+import org.springframework.data.jpa.repository.query.PartTreeJpaQuery;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.repository.core.RepositoryMetadata;
+
+import lombok.NonNull;
+
+/**
+ * {@link PartTreeJpaQuery} creates CriteriaQuery of derived query method once
+ * and reuses it by all executions, unless method has {@link Sort} or
+ * {@link Pageable} parameter. Security condition is different for each user,
+ * thus it can not be a part of such shared query, and JPA has no API to copy
+ * it. Query methods created by this factory tell Spring Data that sorting is
+ * dynamic, so CriteriaQuery is created for each execution (the same way as for
+ * methods with {@link Sort} parameter, sort itself stays unsorted), and
+ * {@link EntityManagerWrapperFactory} adds restriction to the query owned by
+ * single execution. Neither locks nor restoring of query state are needed.
+ */
+class SecuredJpaQueryMethodFactory implements JpaQueryMethodFactory {
+
+	/**
+	 * Bindable parameters are created with {@link JpaParameters} itself, they
+	 * are only used to bind values.
+	 */
+	private static final class PerExecutionJpaParameters extends JpaParameters {
+
+		private PerExecutionJpaParameters(final @NonNull Method method) {
+			super(method);
+		}
+
+		@Override
+		public boolean potentiallySortsDynamically() {
+			return true;
+		}
+
+	}
+
+	private static final class PerExecutionJpaQueryMethod extends JpaQueryMethod {
+
+		private PerExecutionJpaQueryMethod(final @NonNull Method method, final @NonNull RepositoryMetadata metadata,
+				final @NonNull ProjectionFactory factory, final @NonNull QueryExtractor extractor) {
+			super(method, metadata, factory, extractor);
+		}
+
+		@Override
+		protected JpaParameters createParameters(final Method method) {
+			return new PerExecutionJpaParameters(method);
+		}
+
+	}
+
+	/**
+	 * @return {@literal true} if {@link PartTreeJpaQuery} of specified method
+	 *         creates CriteriaQuery for each execution
+	 */
+	static boolean isCreatedPerExecution(final @NonNull JpaQueryMethod queryMethod) {
+		return queryMethod.getParameters().potentiallySortsDynamically()
+				|| queryMethod.getParameters().hasDynamicProjection();
+	}
+
+	private final @NonNull QueryExtractor extractor;
+
+	SecuredJpaQueryMethodFactory(final @NonNull QueryExtractor extractor) {
+		this.extractor = extractor;
+	}
+
+	@Override
+	public @NonNull JpaQueryMethod build(final Method method, final RepositoryMetadata metadata,
+			final ProjectionFactory factory) {
+		return new PerExecutionJpaQueryMethod(method, metadata, factory, extractor);
+	}
+
+}
@@ -1,52 +1,75 @@
 package com.github.vlsergey.springdata.entitysecurity;
 
 import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toCollection;
 import static java.util.stream.Collectors.toList;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityNotFoundException;
+import javax.persistence.FlushModeType;
+import javax.persistence.LockModeType;
+import javax.persistence.Tuple;
 import javax.persistence.TypedQuery;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaDelete;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Subquery;
 import javax.persistence.metamodel.SingularAttribute;
 
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.jpa.repository.support.CrudMethodMetadata;
 import org.springframework.data.jpa.repository.support.JpaEntityInformation;
 import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.data.util.DirectFieldAccessFallbackBeanWrapper;
 import org.springframework.lang.Nullable;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.transaction.support.TransactionSynchronization;
-import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import lombok.AccessLevel;
 import lombok.NonNull;
 import lombok.Setter;
 
 public class SecuredJpaRepository<T, ID extends Serializable, R extends JpaRepository<T, ID>>
-		extends SimpleJpaRepository<T, ID> {
+		extends SimpleJpaRepository<T, ID> implements CountingBatchDeleteExecutor<T, ID>, KeysetPaginationExecutor<T>,
+		StreamingExecutor<T> {
 
-	private static final Object TXSM_KEY_USER_ID = new Object();
+	static final int DEFAULT_IDS_BATCH_SIZE = 1000;
 
 	private static final String UOE_MESSAGE_BY_EXAMPLE = "by-example methods are not supported by SecuredJpaRepository";
 
@@ -56,12 +79,38 @@ public class SecuredJpaRepository<T, ID extends Serializable, R extends JpaRepos
 
 	private final @NonNull EntityManager entityManager;
 
+	@Setter(AccessLevel.PACKAGE)
+	private @Nullable Executor countExecutor;
+
+	@Setter(AccessLevel.PACKAGE)
+	private boolean findAllByIdKeepsOrder = false;
+
+	@Setter(AccessLevel.PACKAGE)
+	private int idsBatchSize = DEFAULT_IDS_BATCH_SIZE;
+
 	@Setter(AccessLevel.PACKAGE)
 	private @NonNull R repositoryBean;
 
+	@Setter(AccessLevel.PACKAGE)
+	private @NonNull Class<?> repositoryInterface;
+
+	@Setter(AccessLevel.PACKAGE)
+	private @NonNull SecurityCheckCache securityCheckCache = TransactionScopedSecurityCheckCache.INSTANCE;
+
+	@Setter(AccessLevel.PACKAGE)
+	private @NonNull SecurityMetrics securityMetrics = SecurityMetrics.NOOP;
+
 	@Setter(AccessLevel.PACKAGE)
 	private @NonNull SecurityMixin<T, R> securityMixin;
 
+	@Setter(AccessLevel.PACKAGE)
+	private boolean snapshotChecks = false;
+
+	@Setter(AccessLevel.PACKAGE)
+	private boolean windowCountPaging = false;
+
+	private volatile @Nullable Boolean windowCountFunctionRegistered;
+
 	public SecuredJpaRepository(final @NonNull JpaEntityInformation<T, ID> entityInformation,
 			final @NonNull EntityManager entityManager) {
 		super(entityInformation, entityManager);
@@ -74,41 +123,77 @@ public class SecuredJpaRepository<T, ID extends Serializable, R extends JpaRepos
 		return a == null ? b : a.and(b);
 	}
 
-	private static void invalidateSuccessCacheIfUserChanged(final @NonNull Object actualUserKey) {
-		final Object stored = TransactionSynchronizationManager.getResource(TXSM_KEY_USER_ID);
+	/**
+	 * @return {@literal true} if security filter is enabled and condition shall
+	 *         not be added to SELECT queries
+	 * @see SecurityMixin#getHibernateFilterName()
+	 */
+	private boolean enableHibernateFilter(final @NonNull Condition<T, R> condition) {
+		final String filterName = securityMixin.getHibernateFilterName();
+		return filterName != null
+				&& HibernateUtils.enableFilter(entityManager, filterName, condition.getHibernateFilterParameters());
+	}
 
-		if (stored == null) {
-			TransactionSynchronizationManager.bindResource(TXSM_KEY_USER_ID, actualUserKey);
-			TransactionSynchronizationManager.registerSynchronization(UnbindUserIdTxSync.INSTANCE);
-			return;
-		}
+	/**
+	 * Executes query that must not be restricted by security filter enabled
+	 * earlier in current transaction (like check queries of write operations and
+	 * queries of user with always true condition)
+	 *
+	 * @see HibernateUtils#withFilterDisabled(EntityManager, String, Supplier)
+	 */
+	private <V> V withoutHibernateFilter(final @NonNull Supplier<V> execution) {
+		final String filterName = securityMixin.getHibernateFilterName();
+		return filterName == null ? execution.get()
+				: HibernateUtils.withFilterDisabled(entityManager, filterName, execution);
+	}
 
-		if (!Objects.equals(stored, actualUserKey)) {
-			for (QueryType qt : QueryType.values()) {
-				final Set<?> cache = (Set<?>) TransactionSynchronizationManager.getResource(qt);
-				if (cache != null) {
-					cache.clear();
-				}
+	private @NonNull Condition<T, R> buildCondition() {
+		return TransactionScopedConditions.buildCondition(securityMixin, () -> {
+			final long start = securityMetrics.startTimer();
+			try {
+				return SecurityEvents.INSTANCE.conditionBuild(getDomainClass(), securityMixin::buildCondition);
+			} finally {
+				securityMetrics.conditionBuilt(start);
 			}
-			TransactionSynchronizationManager.unbindResource(TXSM_KEY_USER_ID);
-			TransactionSynchronizationManager.bindResource(TXSM_KEY_USER_ID, actualUserKey);
-		}
+		});
 	}
 
 	private @NonNull Specification<T> buildIdCondition(ID id) {
+		final SingularAttribute<? super T, ?> idAttribute = getSingularIdAttribute();
+		return (root, cq, cb) -> cb.equal(root.get(idAttribute.getName()), id);
+	}
+
+	private @NonNull Specification<T> buildIdsCondition(final @NonNull Collection<ID> ids) {
+		final SingularAttribute<? super T, ?> idAttribute = getSingularIdAttribute();
+		return (root, cq, cb) -> root.get(idAttribute.getName()).in(ids);
+	}
+
+	private @NonNull SingularAttribute<? super T, ?> getSingularIdAttribute() {
 		final SingularAttribute<? super T, ?> idAttribute = this.entityInformation.getIdAttribute();
 		if (idAttribute == null) {
 			throw new UnsupportedOperationException(UOE_MESSAGE_NON_SINGULAR_ID);
 		}
+		return idAttribute;
+	}
 
-		return (root, cq, cb) -> cb.equal(root.get(idAttribute.getName()), id);
+	/**
+	 * Splits IDs into batches of {@link #idsBatchSize} to stay under JDBC driver
+	 * parameters limit.
+	 */
+	private @NonNull List<List<ID>> toIdsBatches(final @NonNull Collection<ID> ids) {
+		final List<ID> list = ids instanceof List ? (List<ID>) ids : new ArrayList<>(ids);
+		final List<List<ID>> batches = new ArrayList<>(list.size() / idsBatchSize + 1);
+		for (int from = 0; from < list.size(); from += idsBatchSize) {
+			batches.add(list.subList(from, Math.min(from + idsBatchSize, list.size())));
+		}
+		return batches;
 	}
 
 	/**
 	 * return {@literal false} if entity deletion shall be ignored, {@literal true}
 	 * is proceeded
 	 */
-	private boolean checkDelete(T entity) {
+	private boolean checkDelete(final Condition<T, R> condition, T entity) {
 		if (entityInformation.isNew(entity)) {
 			return false;
 		}
@@ -116,7 +201,7 @@ public class SecuredJpaRepository<T, ID extends Serializable, R extends JpaRepos
 		final ID currentId = entityInformation.getId(entity);
 		if (!entityManager.contains(entity)) {
 			// deleting detached entity is just deleting by ID
-			if (super.existsById(currentId)) {
+			if (existsByIdWithoutCondition(QueryType.DELETE, currentId)) {
 				if (existsById(QueryType.DELETE, currentId)) {
 					return true;
 				}
@@ -125,14 +210,31 @@ public class SecuredJpaRepository<T, ID extends Serializable, R extends JpaRepos
 			return false;
 		}
 
+		if (snapshotChecks) {
+			final Boolean existsInDatabase = HibernateUtils.isExistsInDatabase(entityManager, entity);
+			final T snapshot = HibernateUtils.getLoadedStateSnapshot(entityManager, entity);
+			if (existsInDatabase != null && snapshot != null) {
+				if (!existsInDatabase) {
+					// the same as refresh() below does for not yet flushed entity
+					return false;
+				}
+				checkWithCache(condition, snapshot, QueryType.DELETE,
+						() -> securityMixin.onForbiddenOperation(entity, QueryType.DELETE));
+				return true;
+			}
+		}
+
 		// restore old entity information
 		try {
-			entityManager.refresh(entity);
+			executeCheckQuery(QueryType.DELETE, "refresh", () -> {
+				entityManager.refresh(entity);
+				return entity;
+			});
 		} catch (EntityNotFoundException exc) {
 			return false;
 		}
 
-		checkWithCache(securityMixin.buildCondition(), entity, QueryType.DELETE);
+		checkWithCache(condition, entity, QueryType.DELETE);
 		return true;
 	}
 
@@ -148,7 +250,8 @@ public class SecuredJpaRepository<T, ID extends Serializable, R extends JpaRepos
 			// saving detached entity is just update... if we have entity in database... but
 			// do we?
 
-			T fromDb = entityManager.find(getDomainClass(), currentId);
+			T fromDb = executeCheckQuery(QueryType.UPDATE, "find",
+					() -> entityManager.find(getDomainClass(), currentId));
 			if (fromDb != null) {
 				checkWithCache(condition, fromDb, QueryType.UPDATE);
 				checkWithCache(condition, entity, QueryType.UPDATE);
@@ -167,72 +270,310 @@ public class SecuredJpaRepository<T, ID extends Serializable, R extends JpaRepos
 		 * Hibernate-only optimization (trying to do something in case when current
 		 * object is not yet in DB, thus reducing DB lookup queries)
 		 */
-		final Optional<Boolean> existsInDatabase = HibernateUtils.isExistsInDatabase(entityManager, entity);
-		if (!existsInDatabase.orElse(true)) {
+		if (Boolean.FALSE.equals(HibernateUtils.isExistsInDatabase(entityManager, entity))) {
 			// If entity does not exists in DB (i.e. not saved yet)
 			checkWithCache(condition, entity, QueryType.INSERT);
 			return;
 		}
 
-		final ID idToCheck;
-		final T otherEntityWithCurrentId = entityManager.getReference(getDomainClass(), currentId);
-		if (otherEntityWithCurrentId != entity) {
-			idToCheck = HibernateUtils.<ID>getIdentifier(entityManager, entity)
-					.orElseThrow(() -> new UnsupportedOperationException("Changing ID is not supported yet"));
-		} else {
-			idToCheck = currentId;
+		if (snapshotChecks && checkSaveBySnapshot(condition, entity)) {
+			return;
 		}
 
-		if (!existsById(QueryType.UPDATE, idToCheck) && super.existsById(idToCheck)) {
+		final ID idToCheck = getIdToCheck(entity, currentId);
+		if (!existsById(QueryType.UPDATE, idToCheck) && existsByIdWithoutCondition(QueryType.UPDATE, idToCheck)) {
 			securityMixin.onForbiddenUpdate(entity);
 		} else {
 			checkWithCache(condition, entity, QueryType.INSERT);
 		}
 	}
 
+	/**
+	 * Checks managed entity that exists in database using its loaded state as
+	 * known by persistence context instead of making database queries.
+	 *
+	 * @return {@literal false} if loaded state is not available (i.e. JPA
+	 *         provider is not Hibernate) and check shall be done with queries
+	 */
+	private boolean checkSaveBySnapshot(final Condition<T, R> condition, T entity) {
+		final T snapshot = HibernateUtils.getLoadedStateSnapshot(entityManager, entity);
+		if (snapshot == null) {
+			return false;
+		}
+
+		// the same as with queries: mixin is given the entity passed by caller
+		if (checkWithCache(condition, snapshot, QueryType.UPDATE, () -> securityMixin.onForbiddenUpdate(entity))) {
+			checkWithCache(condition, entity, QueryType.INSERT);
+		}
+		return true;
+	}
+
+	/**
+	 * Batch version of {@link #checkSave(Condition, Object)}. Instead of making
+	 * lookups for each entity it loads current DB state of all detached entities
+	 * with one query and finds managed entities forbidden to update with another
+	 * one. Entity checks themselves are made only after both queries are executed.
+	 */
+	private void checkSaveAll(final Condition<T, R> condition, final Iterable<? extends T> entities) {
+		final Set<ID> detachedIds = new LinkedHashSet<>();
+		final Set<ID> managedIds = new LinkedHashSet<>();
+		final Map<ID, T> fromDbById = new HashMap<>();
+		final Set<ID> forbiddenIds = new HashSet<>();
+
+		final List<Runnable> checks = new ArrayList<>();
+		for (T entity : entities) {
+			if (entityInformation.isNew(entity)) {
+				checks.add(() -> checkWithCache(condition, entity, QueryType.INSERT));
+				continue;
+			}
+
+			final ID currentId = entityInformation.getId(entity);
+			if (!entityManager.contains(entity)) {
+				detachedIds.add(currentId);
+				checks.add(() -> {
+					final T fromDb = fromDbById.get(currentId);
+					if (fromDb != null) {
+						checkWithCache(condition, fromDb, QueryType.UPDATE);
+						checkWithCache(condition, entity, QueryType.UPDATE);
+					} else {
+						checkWithCache(condition, entity, QueryType.INSERT);
+					}
+				});
+				continue;
+			}
+
+			if (Boolean.FALSE.equals(HibernateUtils.isExistsInDatabase(entityManager, entity))) {
+				checks.add(() -> checkWithCache(condition, entity, QueryType.INSERT));
+				continue;
+			}
+
+			final T snapshot = snapshotChecks ? HibernateUtils.getLoadedStateSnapshot(entityManager, entity) : null;
+			if (snapshot != null) {
+				checks.add(() -> {
+					if (checkWithCache(condition, snapshot, QueryType.UPDATE,
+							() -> securityMixin.onForbiddenUpdate(entity))) {
+						checkWithCache(condition, entity, QueryType.INSERT);
+					}
+				});
+				continue;
+			}
+
+			final ID idToCheck = getIdToCheck(entity, currentId);
+			managedIds.add(idToCheck);
+			checks.add(() -> {
+				if (forbiddenIds.contains(idToCheck)) {
+					securityMixin.onForbiddenUpdate(entity);
+				} else {
+					checkWithCache(condition, entity, QueryType.INSERT);
+				}
+			});
+		}
+
+		fromDbById.putAll(findAllByIdWithoutCondition(detachedIds));
+		forbiddenIds.addAll(findIdsForbiddenToUpdate(condition, managedIds));
+		checks.forEach(Runnable::run);
+	}
+
+	/**
+	 * Creates query used to check database state before write operation. Such
+	 * query does not flush persistence context (as it would with
+	 * {@link FlushModeType#AUTO}): pending changes are not written one by one in
+	 * the middle of <tt>save()</tt> calls, thus JDBC batching is not broken, and
+	 * the check sees old database state of the entity, not the one being saved.
+	 * Changes not flushed yet are not visible to the check.
+	 */
+	private <E> TypedQuery<E> createCheckQuery(final @NonNull CriteriaQuery<E> query) {
+		return entityManager.createQuery(query).setFlushMode(FlushModeType.COMMIT);
+	}
+
+	/**
+	 * Executes database query made to check entities before write operation (in
+	 * addition to queries of the operation itself), reporting it to
+	 * {@link SecurityMetrics} and {@link SecurityEvents}
+	 *
+	 * @param query short description of the query
+	 */
+	private <V> V executeCheckQuery(final @NonNull QueryType queryType, final @NonNull String query,
+			final @NonNull Supplier<V> execution) {
+		securityMetrics.checkQueryExecuted(queryType);
+		return withoutHibernateFilter(
+				() -> SecurityEvents.INSTANCE.checkQuery(getDomainClass(), queryType, query, execution));
+	}
+
+	/**
+	 * Same as {@link SimpleJpaRepository#existsById(Object)}, but without
+	 * flushing persistence context
+	 *
+	 * @see #createCheckQuery(CriteriaQuery)
+	 */
+	private boolean existsByIdWithoutCondition(final @NonNull QueryType queryType, final @NonNull ID id) {
+		final CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		final CriteriaQuery<Integer> query = cb.createQuery(Integer.class);
+		final Root<T> root = query.from(getDomainClass());
+		query.select(cb.literal(1));
+		query.where(buildIdCondition(id).toPredicate(root, query, cb));
+		return executeCheckQuery(queryType, "existsByIdWithoutCondition",
+				() -> !createCheckQuery(query).setMaxResults(1).getResultList().isEmpty());
+	}
+
+	/**
+	 * Loads entities by ID without security condition (i.e. just like
+	 * {@link EntityManager#find(Class, Object)} does, but in batches)
+	 */
+	private Map<ID, T> findAllByIdWithoutCondition(final @NonNull Collection<ID> ids) {
+		final Map<ID, T> result = new HashMap<>(ids.size());
+		for (List<ID> batch : toIdsBatches(ids)) {
+			final CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+			final CriteriaQuery<T> query = cb.createQuery(getDomainClass());
+			final Root<T> root = query.from(getDomainClass());
+			query.select(root);
+			query.where(buildIdsCondition(batch).toPredicate(root, query, cb));
+
+			executeCheckQuery(QueryType.UPDATE, "findAllByIdWithoutCondition",
+					() -> createCheckQuery(query).getResultList())
+					.forEach(entity -> result.put(entityInformation.getId(entity), entity));
+		}
+		return result;
+	}
+
+	/**
+	 * @return IDs of entities that are present in database, but are not allowed to
+	 *         be updated according to {@link QueryType#UPDATE} condition. Uses
+	 *         single set-based query (per IDs batch) like <tt>select id from
+	 *         entity e where e.id in (...) and not exists (select 1 from entity s
+	 *         where s.id=e.id and [condition on s])</tt>
+	 */
+	@SuppressWarnings("unchecked")
+	private Set<ID> findIdsForbiddenToUpdate(final @NonNull Condition<T, R> condition,
+			final @NonNull Collection<ID> ids) {
+		final SingularAttribute<? super T, ?> idAttribute = getSingularIdAttribute();
+
+		final Set<ID> result = new HashSet<>();
+		for (List<ID> batch : toIdsBatches(ids)) {
+			final CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+			final CriteriaQuery<Object> query = cb.createQuery(Object.class);
+			final Root<T> root = query.from(getDomainClass());
+			query.select(root.get(idAttribute.getName()));
+
+			final Subquery<Integer> allowed = query.subquery(Integer.class);
+			final Root<T> allowedRoot = allowed.from(getDomainClass());
+			allowed.select(cb.literal(1));
+			final Predicate sameId = cb.equal(allowedRoot.get(idAttribute.getName()), root.get(idAttribute.getName()));
+			final Predicate allowedByCondition = condition.toPredicate(allowedRoot, allowed, cb, QueryType.UPDATE);
+			allowed.where(allowedByCondition == null ? sameId : cb.and(sameId, allowedByCondition));
+
+			query.where(buildIdsCondition(batch).toPredicate(root, query, cb), cb.not(cb.exists(allowed)));
+
+			executeCheckQuery(QueryType.UPDATE, "findIdsForbiddenToUpdate", () -> createCheckQuery(query).getResultList())
+					.forEach(id -> result.add((ID) id));
+		}
+		return result;
+	}
+
+	/**
+	 * @return ID of database record that is represented by managed entity. It can
+	 *         be different from current entity ID if ID was changed by the code.
+	 */
+	private ID getIdToCheck(final @NonNull T entity, final ID currentId) {
+		final T otherEntityWithCurrentId = entityManager.getReference(getDomainClass(), currentId);
+		if (otherEntityWithCurrentId != entity) {
+			final ID idInDatabase = HibernateUtils.getIdentifier(entityManager, entity);
+			if (idInDatabase == null) {
+				throw new UnsupportedOperationException("Changing ID is not supported yet");
+			}
+			return idInDatabase;
+		}
+		return currentId;
+	}
+
+	private void checkEntity(final Condition<T, R> condition, final T entity, final QueryType queryType,
+			final String cacheOutcome) {
+		final long start = securityMetrics.startTimer();
+		try {
+			SecurityEvents.INSTANCE.entityCheck(getDomainClass(), queryType, cacheOutcome,
+					() -> condition.checkEntity(repositoryBean, entity, queryType));
+		} finally {
+			securityMetrics.entityChecked(queryType, start);
+		}
+	}
+
 	void checkWithCache(final Condition<T, R> condition, final T entity, final QueryType queryType) {
+		checkWithCache(condition, entity, queryType, null);
+	}
+
+	/**
+	 * @param onForbidden if not {@literal null}, it is called when operation is
+	 *                    forbidden instead of
+	 *                    {@link SecurityMixin#onForbiddenOperation(Object, QueryType)}
+	 *                    and instead of rethrowing denial of
+	 *                    {@link Condition#checkEntity(JpaRepository, Object, QueryType)}.
+	 *                    Used when checked entity is a copy (like loaded state
+	 *                    snapshot), so mixin is given the instance passed by
+	 *                    caller.
+	 * @return {@literal false} if operation is forbidden and
+	 *         <tt>onForbidden</tt> has been called
+	 */
+	private boolean checkWithCache(final Condition<T, R> condition, final T entity, final QueryType queryType,
+			final @Nullable Runnable onForbidden) {
 		if (condition.isAlwaysTrue()) {
-			return;
+			return true;
 		}
 		if (condition.isAlwaysFalse()) {
-			securityMixin.onForbiddenOperation(entity, queryType);
-			return;
-		}
-
-		if (!TransactionSynchronizationManager.isActualTransactionActive()) {
-			condition.checkEntity(repositoryBean, entity, queryType);
-			return;
+			return forbidden(entity, queryType, onForbidden);
 		}
 
 		final Object entityCacheKey = condition.getEntitySecurityCheckCacheKey(entity);
 		final Object currentUserSecurityCheckCacheKey = condition.getCurrentUserSecurityCheckCacheKey();
 
 		if (entityCacheKey == null || currentUserSecurityCheckCacheKey == null) {
-			condition.checkEntity(repositoryBean, entity, queryType);
-			return;
+			try {
+				checkEntity(condition, entity, queryType, SecurityEvents.NOT_CACHEABLE);
+			} catch (RuntimeException exc) {
+				if (onForbidden == null || !condition.isDenial(exc)) {
+					throw exc;
+				}
+				return forbidden(entity, queryType, onForbidden);
+			}
+			return true;
 		}
 
-		invalidateSuccessCacheIfUserChanged(currentUserSecurityCheckCacheKey);
-
-		@SuppressWarnings("unchecked")
-		Set<Object> successChecksKeys = (Set<Object>) TransactionSynchronizationManager.getResource(queryType);
-		if (successChecksKeys != null && successChecksKeys.contains(entityCacheKey)) {
-			return;
+		final SecurityCheckCacheKey cacheKey = new SecurityCheckCacheKey(repositoryInterface, queryType,
+				currentUserSecurityCheckCacheKey, entityCacheKey);
+		if (securityCheckCache.isAllowed(cacheKey)) {
+			securityMetrics.checkCacheHit(queryType, true);
+			SecurityEvents.INSTANCE.entityCheckCached(getDomainClass(), queryType, true);
+			return true;
+		}
+		if (securityCheckCache.isDenied(cacheKey)) {
+			securityMetrics.checkCacheHit(queryType, false);
+			SecurityEvents.INSTANCE.entityCheckCached(getDomainClass(), queryType, false);
+			return forbidden(entity, queryType, onForbidden);
 		}
 
-		condition.checkEntity(repositoryBean, entity, queryType);
+		securityMetrics.checkCacheMiss(queryType);
+		try {
+			checkEntity(condition, entity, queryType, SecurityEvents.CACHE_MISS);
+		} catch (RuntimeException exc) {
+			if (!condition.isDenial(exc)) {
+				throw exc;
+			}
+			securityCheckCache.putDenied(cacheKey);
+			if (onForbidden == null) {
+				throw exc;
+			}
+			return forbidden(entity, queryType, onForbidden);
+		}
+		securityCheckCache.putAllowed(cacheKey);
+		return true;
+	}
 
-		if (successChecksKeys == null) {
-			successChecksKeys = new HashSet<>();
-			TransactionSynchronizationManager.bindResource(queryType, successChecksKeys);
-			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
-				@Override
-				public void afterCompletion(int status) {
-					TransactionSynchronizationManager.unbindResource(queryType);
-				}
-			});
+	private boolean forbidden(final T entity, final QueryType queryType, final @Nullable Runnable onForbidden) {
+		if (onForbidden != null) {
+			onForbidden.run();
+		} else {
+			securityMixin.onForbiddenOperation(entity, queryType);
 		}
-		successChecksKeys.add(entityCacheKey);
+		return false;
 	}
 
 	@Override
@@ -253,9 +594,9 @@ public class SecuredJpaRepository<T, ID extends Serializable, R extends JpaRepos
 
 	@Override
 	public void delete(T entity) {
-		switchByConditionVoid(() -> {
+		switchByConditionVoid(QueryType.DELETE, () -> {
 		}, () -> super.delete(entity), condition -> {
-			if (checkDelete(entity)) {
+			if (checkDelete(condition, entity)) {
 				super.delete(entity);
 			}
 		});
@@ -264,7 +605,7 @@ public class SecuredJpaRepository<T, ID extends Serializable, R extends JpaRepos
 	@Override
 	@Transactional
 	public void deleteAll() {
-		final Condition<T, R> condition = securityMixin.buildCondition();
+		final Condition<T, R> condition = buildCondition();
 		if (condition.isAlwaysFalse()) {
 			return;
 		}
@@ -273,26 +614,91 @@ public class SecuredJpaRepository<T, ID extends Serializable, R extends JpaRepos
 			return;
 		}
 
-		final CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-		final CriteriaDelete<T> cd = cb.createCriteriaDelete(getDomainClass());
-		final Root<T> root = cd.from(getDomainClass());
-		cd.where(condition.toPredicate(root, cd, cb, QueryType.DELETE));
-		entityManager.createQuery(cd).executeUpdate();
+		executeBatchDelete(condition, null);
 	}
 
 	@Override
+	@Transactional
 	public void deleteAllByIdInBatch(Iterable<ID> ids) {
-		throw new UnsupportedOperationException("NYI");
+		deleteAllByIdInBatchReturningCount(ids);
+	}
+
+	@Override
+	@Transactional
+	public int deleteAllByIdInBatchReturningCount(final @NonNull Iterable<ID> ids) {
+		final Set<ID> distinctIds = StreamSupport.stream(ids.spliterator(), false)
+				.collect(toCollection(LinkedHashSet::new));
+		if (distinctIds.isEmpty()) {
+			return 0;
+		}
+
+		final Condition<T, R> condition = buildCondition();
+		if (condition.isAlwaysFalse()) {
+			return 0;
+		}
+
+		int deleted = 0;
+		for (List<ID> batch : toIdsBatches(distinctIds)) {
+			deleted += executeBatchDelete(condition, batch);
+		}
+		return deleted;
 	}
 
 	@Override
+	@Transactional
 	public void deleteAllInBatch() {
-		throw new UnsupportedOperationException("NYI");
+		deleteAllInBatchReturningCount();
 	}
 
 	@Override
+	@Transactional
 	public void deleteAllInBatch(Iterable<T> entities) {
-		throw new UnsupportedOperationException("NYI");
+		deleteAllInBatchReturningCount(entities);
+	}
+
+	@Override
+	@Transactional
+	public int deleteAllInBatchReturningCount() {
+		final Condition<T, R> condition = buildCondition();
+		if (condition.isAlwaysFalse()) {
+			return 0;
+		}
+		return executeBatchDelete(condition, null);
+	}
+
+	@Override
+	@Transactional
+	public int deleteAllInBatchReturningCount(final @NonNull Iterable<T> entities) {
+		return deleteAllByIdInBatchReturningCount(StreamSupport.stream(entities.spliterator(), false)
+				.filter(entity -> !entityInformation.isNew(entity)).map(entityInformation::getId).collect(toList()));
+	}
+
+	/**
+	 * Executes single bulk <tt>DELETE</tt> statement with
+	 * {@link QueryType#DELETE} condition applied. Like any JPA bulk operation it
+	 * bypasses persistence context, thus already loaded entities are not affected.
+	 *
+	 * @param ids IDs of entities to delete or {@literal null} to delete all
+	 *            entities allowed by condition
+	 * @return number of deleted rows
+	 */
+	private int executeBatchDelete(final @NonNull Condition<T, R> condition, final @Nullable Collection<ID> ids) {
+		final CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		final CriteriaDelete<T> cd = cb.createCriteriaDelete(getDomainClass());
+		final Root<T> root = cd.from(getDomainClass());
+
+		final List<Predicate> predicates = new ArrayList<>(2);
+		if (ids != null) {
+			predicates.add(root.get(getSingularIdAttribute().getName()).in(ids));
+		}
+		if (!condition.isAlwaysTrue()) {
+			final Predicate securityPredicate = condition.toPredicate(root, cd, cb, QueryType.DELETE);
+			if (securityPredicate != null) {
+				predicates.add(securityPredicate);
+			}
+		}
+		cd.where(predicates.toArray(new Predicate[predicates.size()]));
+		return entityManager.createQuery(cd).executeUpdate();
 	}
 
 	@Override
@@ -300,7 +706,7 @@ public class SecuredJpaRepository<T, ID extends Serializable, R extends JpaRepos
 		Supplier<EmptyResultDataAccessException> errorSupplier = () -> new EmptyResultDataAccessException(
 				String.format("No %s entity with id %s exists!", entityInformation.getJavaType(), id), 1);
 
-		switchByConditionVoid(() -> {
+		switchByConditionVoid(QueryType.DELETE, () -> {
 			throw errorSupplier.get();
 		}, () -> super.deleteById(id), condition -> {
 			if (!existsById(QueryType.DELETE, id)) {
@@ -311,8 +717,10 @@ public class SecuredJpaRepository<T, ID extends Serializable, R extends JpaRepos
 	}
 
 	@Override
+	@Deprecated
+	@Transactional
 	public void deleteInBatch(Iterable<T> entities) {
-		throw new UnsupportedOperationException("NYI");
+		deleteAllInBatchReturningCount(entities);
 	}
 
 	@Override
@@ -326,17 +734,27 @@ public class SecuredJpaRepository<T, ID extends Serializable, R extends JpaRepos
 	}
 
 	protected boolean existsById(QueryType queryType, ID id) {
-		return switchByCondition(queryType, () -> false, () -> super.existsById(id), condition -> {
+		final Supplier<Boolean> alwaysTrue = () -> queryType == QueryType.SELECT ? super.existsById(id)
+				: existsByIdWithoutCondition(queryType, id);
+		return switchByCondition(queryType, () -> false, alwaysTrue, condition -> {
 			final CriteriaBuilder cb = entityManager.getCriteriaBuilder();
 			final CriteriaQuery<Integer> rootQuery = cb.createQuery(Integer.class);
 
 			final Root<T> root = rootQuery.from(getDomainClass());
 			rootQuery.select(cb.literal(1));
-			rootQuery.where(buildIdCondition(id).toPredicate(root, rootQuery, cb),
-					condition.toPredicate(root, rootQuery, cb));
+			final Predicate idPredicate = buildIdCondition(id).toPredicate(root, rootQuery, cb);
+			final Predicate securityPredicate = condition.toPredicate(root, rootQuery, cb);
+			if (securityPredicate != null) {
+				rootQuery.where(idPredicate, securityPredicate);
+			} else {
+				rootQuery.where(idPredicate);
+			}
 
-			final TypedQuery<Integer> query = entityManager.createQuery(rootQuery);
-			return !query.getResultList().isEmpty();
+			if (queryType == QueryType.SELECT) {
+				return !entityManager.createQuery(rootQuery).getResultList().isEmpty();
+			}
+			return executeCheckQuery(queryType, "existsById",
+					() -> !createCheckQuery(rootQuery).getResultList().isEmpty());
 		});
 	}
 
@@ -362,8 +780,8 @@ public class SecuredJpaRepository<T, ID extends Serializable, R extends JpaRepos
 
 	@Override
 	public Page<T> findAll(Pageable pageable) {
-		return switchByCondition(QueryType.SELECT, () -> Page.empty(pageable), () -> super.findAll(pageable),
-				condition -> super.findAll(condition, pageable));
+		return switchByCondition(QueryType.SELECT, () -> Page.empty(pageable), () -> findPage(null, pageable),
+				condition -> findPage(condition, pageable));
 	}
 
 	@Override
@@ -380,8 +798,8 @@ public class SecuredJpaRepository<T, ID extends Serializable, R extends JpaRepos
 
 	@Override
 	public Page<T> findAll(Specification<T> spec, Pageable pageable) {
-		return switchByCondition(QueryType.SELECT, () -> Page.empty(pageable), () -> super.findAll(spec, pageable),
-				condition -> super.findAll(and(spec, condition), pageable));
+		return switchByCondition(QueryType.SELECT, () -> Page.empty(pageable), () -> findPage(spec, pageable),
+				condition -> findPage(and(spec, condition), pageable));
 	}
 
 	@Override
@@ -390,22 +808,248 @@ public class SecuredJpaRepository<T, ID extends Serializable, R extends JpaRepos
 				condition -> super.findAll(and(spec, condition), sort));
 	}
 
+	@Override
+	public Slice<T> findAllAfter(final @Nullable Specification<T> spec, final @NonNull Sort sort,
+			final @Nullable T last, final int limit) {
+		if (limit < 1) {
+			throw new InvalidDataAccessApiUsageException("limit must be positive");
+		}
+
+		final String idAttributeName = getSingularIdAttribute().getName();
+		final Sort keysetSort = sort.getOrderFor(idAttributeName) != null ? sort
+				: sort.and(Sort.by(idAttributeName));
+		for (Sort.Order order : keysetSort) {
+			if (order.isIgnoreCase()) {
+				throw new InvalidDataAccessApiUsageException(
+						"Case-insensitive sort is not supported by keyset pagination: " + order.getProperty());
+			}
+		}
+
+		final Specification<T> seek = last == null ? null : buildSeekCondition(keysetSort, last);
+		final Pageable pageable = PageRequest.of(0, limit, keysetSort);
+
+		return switchByCondition(QueryType.SELECT, () -> new SliceImpl<>(emptyList(), pageable, false),
+				() -> findSlice(and(spec, seek), pageable),
+				condition -> findSlice(and(and(spec, condition), seek), pageable));
+	}
+
+	/**
+	 * @return <tt>(p1 &gt; v1) or (p1 = v1 and p2 &gt; v2) or ...</tt> condition
+	 *         for sort properties <tt>p</tt> and their values <tt>v</tt> taken
+	 *         from the last entity of previous slice (<tt>&lt;</tt> is used for
+	 *         descending properties)
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private @NonNull Specification<T> buildSeekCondition(final @NonNull Sort sort, final @NonNull T last) {
+		final DirectFieldAccessFallbackBeanWrapper beanWrapper = new DirectFieldAccessFallbackBeanWrapper(last);
+		final List<Sort.Order> orders = sort.toList();
+		final List<Comparable> values = new ArrayList<>(orders.size());
+		for (Sort.Order order : orders) {
+			final Object value = beanWrapper.getPropertyValue(order.getProperty());
+			if (!(value instanceof Comparable)) {
+				throw new InvalidDataAccessApiUsageException("Value of sort property " + order.getProperty()
+						+ " of last entity must be non-null and comparable for keyset pagination");
+			}
+			values.add((Comparable) value);
+		}
+
+		return (root, cq, cb) -> {
+			final List<Predicate> alternatives = new ArrayList<>(orders.size());
+			final List<Predicate> equalToLast = new ArrayList<>(orders.size());
+			for (int i = 0; i < orders.size(); i++) {
+				final Sort.Order order = orders.get(i);
+				final Expression<Comparable> path = (Expression<Comparable>) toPath(root, order.getProperty());
+				final Comparable value = values.get(i);
+
+				final List<Predicate> alternative = new ArrayList<>(equalToLast);
+				alternative.add(order.isAscending() ? cb.greaterThan(path, value) : cb.lessThan(path, value));
+				alternatives.add(cb.and(alternative.toArray(new Predicate[alternative.size()])));
+
+				equalToLast.add(cb.equal(path, value));
+			}
+			return cb.or(alternatives.toArray(new Predicate[alternatives.size()]));
+		};
+	}
+
+	private @NonNull Slice<T> findSlice(final @Nullable Specification<T> spec, final @NonNull Pageable pageable) {
+		final TypedQuery<T> query = getQuery(spec, pageable.getSort());
+		// one more row to find out if there is next slice
+		query.setMaxResults(pageable.getPageSize() + 1);
+
+		final List<T> content = query.getResultList();
+		final boolean hasNext = content.size() > pageable.getPageSize();
+		return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content, pageable, hasNext);
+	}
+
+	private static @NonNull Path<?> toPath(final @NonNull Root<?> root, final @NonNull String property) {
+		Path<?> path = root;
+		for (String part : property.split("\\.")) {
+			path = path.get(part);
+		}
+		return path;
+	}
+
+	private Page<T> findPage(final @Nullable Specification<T> spec, final @NonNull Pageable pageable) {
+		if (pageable.isPaged() && windowCountPaging && entityInformation.getIdAttribute() != null
+				&& isWindowCountFunctionRegistered()) {
+			return findPageWithWindowCount(spec, pageable);
+		}
+		if (pageable.isPaged() && countExecutor != null && securityMixin.getHibernateFilterName() == null) {
+			return findPageWithParallelCount(spec, pageable, countExecutor);
+		}
+		return super.findAll(spec, pageable);
+	}
+
+	/**
+	 * Same as {@link SimpleJpaRepository#findAll(Specification, Pageable)}, but
+	 * count query is started before content one and executed in parallel.
+	 *
+	 * @see ParallelCountQuery
+	 */
+	private Page<T> findPageWithParallelCount(final @Nullable Specification<T> spec, final @NonNull Pageable pageable,
+			final @NonNull Executor executor) {
+		final ParallelCountQuery countQuery = new ParallelCountQuery(entityManager, executor,
+				countEntityManager -> count(countEntityManager, spec));
+
+		final TypedQuery<T> query = getQuery(spec, pageable);
+		query.setFirstResult((int) pageable.getOffset());
+		query.setMaxResults(pageable.getPageSize());
+		return PageableExecutionUtils.getPage(query.getResultList(), pageable, countQuery::join);
+	}
+
+	/**
+	 * Count query like {@link SimpleJpaRepository#count(Specification)} for
+	 * specified (not the repository one) {@link EntityManager}
+	 */
+	private long count(final @NonNull EntityManager countEntityManager, final @Nullable Specification<T> spec) {
+		final CriteriaBuilder cb = countEntityManager.getCriteriaBuilder();
+		final CriteriaQuery<Long> query = cb.createQuery(Long.class);
+		final Root<T> root = query.from(getDomainClass());
+		if (spec != null) {
+			final Predicate predicate = spec.toPredicate(root, query, cb);
+			if (predicate != null) {
+				query.where(predicate);
+			}
+		}
+		query.select(query.isDistinct() ? cb.countDistinct(root) : cb.count(root));
+		query.orderBy(Collections.emptyList());
+
+		long total = 0L;
+		for (Long element : countEntityManager.createQuery(query).getResultList()) {
+			total += element == null ? 0 : element;
+		}
+		return total;
+	}
+
+	/**
+	 * Selects page content together with <tt>count(id) over()</tt>, i.e. with
+	 * total number of rows matching the condition, in a single query.
+	 *
+	 * @see WindowCountMetadataBuilderContributor
+	 */
+	private Page<T> findPageWithWindowCount(final @Nullable Specification<T> spec, final @NonNull Pageable pageable) {
+		final CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		final CriteriaQuery<Tuple> query = cb.createTupleQuery();
+		final Root<T> root = query.from(getDomainClass());
+		query.multiselect(root, cb.function(WindowCountMetadataBuilderContributor.FUNCTION_NAME, Long.class,
+				root.get(getSingularIdAttribute().getName())));
+
+		if (spec != null) {
+			final Predicate predicate = spec.toPredicate(root, query, cb);
+			if (predicate != null) {
+				query.where(predicate);
+			}
+		}
+		if (query.isDistinct()) {
+			// window function is evaluated before DISTINCT, thus total would be wrong
+			return super.findAll(spec, pageable);
+		}
+		if (pageable.getSort().isSorted()) {
+			query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+		}
+
+		final TypedQuery<Tuple> typedQuery = applyRepositoryMethodMetadata(entityManager.createQuery(query));
+		typedQuery.setFirstResult((int) pageable.getOffset());
+		typedQuery.setMaxResults(pageable.getPageSize());
+		final List<Tuple> rows = typedQuery.getResultList();
+
+		final List<T> content = rows.stream().map(row -> row.get(0, getDomainClass())).collect(toList());
+		if (rows.isEmpty()) {
+			// total is unknown if requested page is beyond the last one
+			return PageableExecutionUtils.getPage(content, pageable, () -> super.count(spec));
+		}
+		return new PageImpl<>(content, pageable, rows.get(0).get(1, Long.class));
+	}
+
+	/**
+	 * Applies lock mode and query hints (including fetch graph) of called
+	 * repository method, just like {@link SimpleJpaRepository} does for queries
+	 * it creates itself
+	 */
+	private <E> TypedQuery<E> applyRepositoryMethodMetadata(final @NonNull TypedQuery<E> query) {
+		final CrudMethodMetadata metadata = getRepositoryMethodMetadata();
+		if (metadata == null) {
+			return query;
+		}
+
+		final LockModeType lockModeType = metadata.getLockModeType();
+		final TypedQuery<E> result = lockModeType == null ? query : query.setLockMode(lockModeType);
+		getQueryHints().withFetchGraphs(entityManager).forEach(result::setHint);
+		return result;
+	}
+
+	private boolean isWindowCountFunctionRegistered() {
+		Boolean registered = windowCountFunctionRegistered;
+		if (registered == null) {
+			registered = HibernateUtils.isSqlFunctionRegistered(entityManager.getEntityManagerFactory(),
+					WindowCountMetadataBuilderContributor.FUNCTION_NAME);
+			windowCountFunctionRegistered = registered;
+		}
+		return registered;
+	}
+
 	@Override
 	public List<T> findAllById(Iterable<ID> ids) {
 		return switchByCondition(QueryType.SELECT, Collections::emptyList, () -> super.findAllById(ids),
-				// TODO: optimize with batch query by ID
-				condition -> StreamSupport.stream(ids.spliterator(), false).map(SecuredJpaRepository.this::findById)
-						.map(op -> op.map(Collections::singletonList).orElse(emptyList())).flatMap(Collection::stream)
-						.collect(toList()));
+				condition -> findAllByIdInBatches(condition, ids));
+	}
+
+	private List<T> findAllByIdInBatches(final @NonNull Specification<T> condition, final @NonNull Iterable<ID> ids) {
+		final List<ID> distinctIds = new ArrayList<>(
+				StreamSupport.stream(ids.spliterator(), false).collect(toCollection(LinkedHashSet::new)));
+		if (distinctIds.isEmpty()) {
+			return emptyList();
+		}
+
+		final List<T> result = new ArrayList<>(distinctIds.size());
+		for (List<ID> batch : toIdsBatches(distinctIds)) {
+			result.addAll(super.findAll(and(buildIdsCondition(batch), condition)));
+		}
+
+		if (findAllByIdKeepsOrder) {
+			final Map<ID, Integer> positions = new HashMap<>(distinctIds.size());
+			for (int i = 0; i < distinctIds.size(); i++) {
+				positions.put(distinctIds.get(i), i);
+			}
+			result.sort(Comparator.comparing(entity -> positions.get(entityInformation.getId(entity))));
+		}
+		return result;
 	}
 
 	@Override
 	public Optional<T> findById(ID id) {
 		return switchByCondition(QueryType.SELECT, Optional::empty, () -> super.findById(id),
-				// we need to take care about lock hits and other things, so select twice
-				condition -> findOne(and(condition, buildIdCondition(id))).isPresent() //
-						? super.findById(id)
-						: Optional.empty());
+				condition -> findOneById(condition, id));
+	}
+
+	/**
+	 * Loads entity by ID with security condition applied in a single query. Lock
+	 * mode and query hints from {@link CrudMethodMetadata} are applied by
+	 * {@link SimpleJpaRepository#getQuery(Specification, Sort)}, and JPA provider
+	 * returns already managed instance from persistence context if there is one.
+	 */
+	private Optional<T> findOneById(final @NonNull Specification<T> condition, final @NonNull ID id) {
+		return super.findOne(and(buildIdCondition(id), condition));
 	}
 
 	@Override
@@ -431,12 +1075,50 @@ public class SecuredJpaRepository<T, ID extends Serializable, R extends JpaRepos
 		return switchByCondition(QueryType.SELECT, () -> {
 			throw new EntityNotFoundException();
 		}, () -> super.getOne(id),
-				condition -> findOne(and(buildIdCondition(id), condition)).orElseThrow(EntityNotFoundException::new));
+				condition -> findOneById(condition, id).orElseThrow(EntityNotFoundException::new));
+	}
+
+	private @NonNull Stream<T> getResultStream(final @Nullable Specification<T> spec, final @NonNull Sort sort,
+			final int fetchSize) {
+		final TypedQuery<T> query = getQuery(spec, sort);
+		query.setHint(HibernateUtils.HINT_FETCH_SIZE, fetchSize);
+		return query.getResultStream();
+	}
+
+	@Override
+	public Stream<T> streamAll(final @Nullable Specification<T> spec, final int fetchSize) {
+		return streamAll(spec, Sort.unsorted(), fetchSize, false);
+	}
+
+	@Override
+	public Stream<T> streamAll(final @Nullable Specification<T> spec, final @NonNull Sort sort, final int fetchSize,
+			final boolean detach) {
+		if (fetchSize < 1) {
+			throw new InvalidDataAccessApiUsageException("fetchSize must be positive");
+		}
+
+		final Stream<T> stream = switchByCondition(QueryType.SELECT, Stream::empty,
+				() -> getResultStream(spec, sort, fetchSize),
+				condition -> getResultStream(and(spec, condition), sort, fetchSize));
+		if (!detach) {
+			return stream;
+		}
+
+		// previous entity is detached only when next one is read, so it is still
+		// managed while being processed by the stream consumer
+		final AtomicReference<T> previous = new AtomicReference<>();
+		final Consumer<T> detachPrevious = next -> {
+			final T entity = previous.getAndSet(next);
+			if (entity != null && entityManager.contains(entity)) {
+				entityManager.detach(entity);
+			}
+		};
+		return stream.peek(detachPrevious).onClose(() -> detachPrevious.accept(null));
 	}
 
 	@Override
 	public <S extends T> S save(S entity) {
-		return switchByCondition(() -> {
+		return switchByBuiltCondition(QueryType.UPDATE, () -> {
 			securityMixin.onForbiddenUpdate(entity);
 			return entity;
 		}, () -> super.save(entity), condition -> {
@@ -447,65 +1129,78 @@ public class SecuredJpaRepository<T, ID extends Serializable, R extends JpaRepos
 
 	@Override
 	public <S extends T> List<S> saveAll(Iterable<S> entities) {
-		return switchByCondition(() -> {
+		return switchByBuiltCondition(QueryType.UPDATE, () -> {
 			entities.forEach(securityMixin::onForbiddenUpdate);
 			return StreamSupport.stream(entities.spliterator(), false).collect(toList());
 		}, () -> super.saveAll(entities), condition -> {
-			// TODO: optimize batch check
-			entities.forEach(entity -> this.checkSave(condition, entity));
-			return super.saveAll(entities);
+			checkSaveAll(condition, entities);
+			return saveAllChecked(entities);
 		});
 	}
 
 	@Override
 	public <S extends T> List<S> saveAllAndFlush(Iterable<S> entities) {
-		return switchByCondition(() -> {
+		return switchByBuiltCondition(QueryType.UPDATE, () -> {
 			entities.forEach(securityMixin::onForbiddenUpdate);
 			return StreamSupport.stream(entities.spliterator(), false).collect(toList());
 		}, () -> super.saveAllAndFlush(entities), condition -> {
-			// TODO: optimize batch check
-			entities.forEach(entity -> this.checkSave(condition, entity));
-			return super.saveAllAndFlush(entities);
+			checkSaveAll(condition, entities);
+			final List<S> result = saveAllChecked(entities);
+			flush();
+			return result;
 		});
 	}
 
+	/**
+	 * Saves entities already checked by {@link #checkSaveAll(Condition, Iterable)}.
+	 * {@link SimpleJpaRepository#saveAll(Iterable)} can not be used, because it
+	 * calls overridden {@link #save(Object)}, that would check (and query) each
+	 * entity once again.
+	 */
+	private <S extends T> List<S> saveAllChecked(final @NonNull Iterable<S> entities) {
+		final List<S> result = new ArrayList<>();
+		for (S entity : entities) {
+			result.add(super.save(entity));
+		}
+		return result;
+	}
+
 	private <E> E switchByCondition(final @NonNull QueryType queryType, final @NonNull Supplier<E> alwaysFalse,
 			final @NonNull Supplier<E> alwaysTrue, final @NonNull Function<Specification<T>, E> other) {
-		return switchByCondition(alwaysFalse, alwaysTrue,
-				condition -> other.apply(condition.toSpecification(queryType)));
+		return switchByBuiltCondition(queryType, alwaysFalse, alwaysTrue,
+				condition -> other.apply(queryType == QueryType.SELECT && enableHibernateFilter(condition) //
+						? Specification.where(null)
+						: condition.toSpecification(queryType)));
 	}
 
-	private <E> E switchByCondition(final @NonNull Supplier<E> alwaysFalse, final @NonNull Supplier<E> alwaysTrue,
-			final @NonNull Function<Condition<T, R>, E> other) {
-		final Condition<T, R> condition = securityMixin.buildCondition();
+	private <E> E switchByBuiltCondition(final @NonNull QueryType queryType, final @NonNull Supplier<E> alwaysFalse,
+			final @NonNull Supplier<E> alwaysTrue, final @NonNull Function<Condition<T, R>, E> other) {
+		final Condition<T, R> condition = buildCondition();
 		if (condition.isAlwaysTrue()) {
-			return alwaysTrue.get();
+			securityMetrics.conditionShortCircuited(queryType, true);
+			return withoutHibernateFilter(alwaysTrue);
 		} else if (condition.isAlwaysFalse()) {
+			securityMetrics.conditionShortCircuited(queryType, false);
 			return alwaysFalse.get();
 		} else {
 			return other.apply(condition);
 		}
 	}
 
-	private void switchByConditionVoid(final @NonNull Runnable alwaysFalse, final @NonNull Runnable alwaysTrue,
-			final @NonNull Consumer<Condition<T, R>> other) {
-		final Condition<T, R> condition = securityMixin.buildCondition();
+	private void switchByConditionVoid(final @NonNull QueryType queryType, final @NonNull Runnable alwaysFalse,
+			final @NonNull Runnable alwaysTrue, final @NonNull Consumer<Condition<T, R>> other) {
+		final Condition<T, R> condition = buildCondition();
 		if (condition.isAlwaysTrue()) {
-			alwaysTrue.run();
+			securityMetrics.conditionShortCircuited(queryType, true);
+			withoutHibernateFilter(() -> {
+				alwaysTrue.run();
+				return null;
+			});
 		} else if (condition.isAlwaysFalse()) {
+			securityMetrics.conditionShortCircuited(queryType, false);
 			alwaysFalse.run();
 		} else {
 			other.accept(condition);
 		}
 	}
-
-	private static final class UnbindUserIdTxSync implements TransactionSynchronization {
-
-		static final UnbindUserIdTxSync INSTANCE = new UnbindUserIdTxSync();
-
-		@Override
-		public void afterCompletion(int status) {
-			TransactionSynchronizationManager.unbindResource(TXSM_KEY_USER_ID);
-		}
-	}
 }
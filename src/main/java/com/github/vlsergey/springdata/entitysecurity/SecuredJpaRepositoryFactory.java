@@ -2,19 +2,20 @@ package com.github.vlsergey.springdata.entitysecurity;
 
 import static org.springframework.data.querydsl.QuerydslUtils.QUERY_DSL_PRESENT;
 
-import java.io.Serializable;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 
 import javax.persistence.EntityManager;
 
-import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.data.jpa.provider.PersistenceProvider;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.query.DefaultJpaQueryMethodFactory;
 import org.springframework.data.jpa.repository.query.EscapeCharacter;
 import org.springframework.data.jpa.repository.query.JpaQueryLookupStrategy;
 import org.springframework.data.jpa.repository.query.JpaQueryMethodFactory;
+import org.springframework.data.jpa.repository.query.PartTreeJpaQuery;
 import org.springframework.data.jpa.repository.support.CrudMethodMetadata;
 import org.springframework.data.jpa.repository.support.JpaEntityInformation;
 import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
@@ -23,22 +24,27 @@ import org.springframework.data.querydsl.EntityPathResolver;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
 import org.springframework.data.repository.core.RepositoryInformation;
 import org.springframework.data.repository.core.RepositoryMetadata;
+import org.springframework.data.repository.core.support.AbstractRepositoryMetadata;
 import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
 import org.springframework.data.repository.query.QueryLookupStrategy;
 import org.springframework.data.repository.query.QueryLookupStrategy.Key;
 import org.springframework.data.repository.query.QueryMethodEvaluationContextProvider;
+import org.springframework.data.repository.query.RepositoryQuery;
+import org.springframework.lang.Nullable;
 
 import lombok.NonNull;
 import lombok.SneakyThrows;
 
 public class SecuredJpaRepositoryFactory extends JpaRepositoryFactory {
 
+	private @Nullable BeanFactory beanFactory;
 	private final EntityManager entityManager;
 	private EscapeCharacter escapeCharacter = EscapeCharacter.DEFAULT;
 	private final PersistenceProvider extractor;
 	private JpaQueryMethodFactory queryMethodFactory;
 	private ThreadLocal<SecuredJpaRepository> currentlyProcessedRepositoryImplementation = new ThreadLocal<>();
 	private ThreadLocal<Class<?>> currentlyProcessedRepositoryInterface = new ThreadLocal<>();
+	private final SecurityMixinRegistry securityMixinRegistry = new SecurityMixinRegistry();
 
 	@Override
 	public <T> T getRepository(Class<T> repositoryInterface, RepositoryFragments fragments) {
@@ -62,17 +68,32 @@ public class SecuredJpaRepositoryFactory extends JpaRepositoryFactory {
 
 		this.entityManager = entityManager;
 		this.extractor = PersistenceProvider.fromEntityManager(entityManager);
-		this.queryMethodFactory = new DefaultJpaQueryMethodFactory(extractor);
+		this.queryMethodFactory = new SecuredJpaQueryMethodFactory(extractor);
 	}
 
 	@Override
 	protected Optional<QueryLookupStrategy> getQueryLookupStrategy(Key key,
 			QueryMethodEvaluationContextProvider evaluationContextProvider) {
 		final Class<?> repositoryInterface = currentlyProcessedRepositoryInterface.get();
-		final SecurityMixin<?, ?> securityMixin = getSecurityMixin(repositoryInterface);
-
-		return Optional.of(JpaQueryLookupStrategy.create(EntityManagerWrapperFactory.wrap(entityManager, securityMixin),
-				queryMethodFactory, key, evaluationContextProvider, escapeCharacter));
+		final SecurityMixin<?, ?> securityMixin = securityMixinRegistry.getSecurityMixin(repositoryInterface);
+
+		final Class<?> domainType = AbstractRepositoryMetadata.getMetadata(repositoryInterface).getDomainType();
+
+		final QueryLookupStrategy strategy = JpaQueryLookupStrategy.create(
+				EntityManagerWrapperFactory.wrap(entityManager, domainType, securityMixin), queryMethodFactory, key,
+				evaluationContextProvider, escapeCharacter);
+		return Optional.of((method, metadata, factory, namedQueries) -> {
+			final RepositoryQuery query = strategy.resolveQuery(method, metadata, factory, namedQueries);
+			// restriction is added to CriteriaQuery of derived query, it must not be
+			// shared by executions
+			if (query instanceof PartTreeJpaQuery && !SecuredJpaQueryMethodFactory
+					.isCreatedPerExecution(((PartTreeJpaQuery) query).getQueryMethod())) {
+				throw new InvalidDataAccessApiUsageException("Derived query method " + method
+						+ " of secured repository reuses CriteriaQuery among executions. Custom JpaQueryMethodFactory"
+						+ " shall create query methods with dynamic sorting parameters");
+			}
+			return query;
+		});
 	}
 
 	@Override
@@ -91,7 +112,8 @@ public class SecuredJpaRepositoryFactory extends JpaRepositoryFactory {
 			return super.getRepositoryFragments(metadata, entityManager, resolver, crudMethodMetadata);
 		}
 
-		final SecurityMixin<?, ?> securityMixin = securedWith.value().getDeclaredConstructor().newInstance();
+		final SecurityMixin<?, ?> securityMixin = securityMixinRegistry
+				.getSecurityMixin(metadata.getRepositoryInterface());
 
 		boolean isQueryDslRepository = QUERY_DSL_PRESENT
 				&& QuerydslPredicateExecutor.class.isAssignableFrom(metadata.getRepositoryInterface());
@@ -115,17 +137,29 @@ public class SecuredJpaRepositoryFactory extends JpaRepositoryFactory {
 		return RepositoryFragments.empty();
 	}
 
-	// TODO: cache to use 1 instance per repository
-	@SuppressWarnings("unchecked")
-	private <T, R extends JpaRepository<T, ? extends Serializable>> SecurityMixin<T, R> getSecurityMixin(
-			Class<?> repositoryInterface) {
-		return Optional.ofNullable(repositoryInterface.getAnnotation(SecuredWith.class)) //
-				.map(SecuredWith::value) //
-				.map(cls -> (Class<SecurityMixin<T, R>>) cls) //
-				.map(BeanUtils::instantiateClass) //
-				.orElseGet(() -> QuerydslPredicateExecutor.class.isAssignableFrom(repositoryInterface)
-						? (SecurityMixin<T, R>) StandardConditions.alwaysAllowSecurityMixinWithQuerydsl()
-						: StandardConditions.alwaysAllowSecurityMixin());
+	/**
+	 * @return {@literal null} if parallel count queries are not enabled
+	 */
+	private @Nullable Executor getCountExecutor(final @NonNull SecuredWith securedWith) {
+		if (!securedWith.parallelCount()) {
+			return null;
+		}
+		if (securedWith.countExecutor().isEmpty()) {
+			return DefaultCountQueryExecutor.INSTANCE;
+		}
+		if (beanFactory == null) {
+			throw new InvalidDataAccessApiUsageException(
+					"BeanFactory is not available to find count executor bean " + securedWith.countExecutor());
+		}
+		return beanFactory.getBean(securedWith.countExecutor(), Executor.class);
+	}
+
+	private @NonNull SecurityCheckCache getSecurityCheckCache() {
+		if (beanFactory == null) {
+			return TransactionScopedSecurityCheckCache.INSTANCE;
+		}
+		return beanFactory.getBeanProvider(SecurityCheckCache.class)
+				.getIfAvailable(() -> TransactionScopedSecurityCheckCache.INSTANCE);
 	}
 
 	@Override
@@ -137,8 +171,23 @@ public class SecuredJpaRepositoryFactory extends JpaRepositoryFactory {
 
 		if (repository instanceof SecuredJpaRepository<?, ?, ?>) {
 			final SecuredJpaRepository<?, ?, ?> secured = (SecuredJpaRepository<?, ?, ?>) repository;
-			final SecurityMixin<?, ?> securityMixin = getSecurityMixin(information.getRepositoryInterface());
+			final SecurityMixin<?, ?> securityMixin = securityMixinRegistry
+					.getSecurityMixin(information.getRepositoryInterface());
 			secured.setSecurityMixin((SecurityMixin) securityMixin);
+			secured.setRepositoryInterface(information.getRepositoryInterface());
+			secured.setSecurityCheckCache(getSecurityCheckCache());
+			secured.setSecurityMetrics(SecurityMetrics.forRepository(beanFactory, information.getRepositoryInterface()));
+
+			final SecuredWith securedWith = information.getRepositoryInterface().getAnnotation(SecuredWith.class);
+			if (securedWith.idsBatchSize() < 1) {
+				throw new InvalidDataAccessApiUsageException("idsBatchSize of @SecuredWith annotation on "
+						+ information.getRepositoryInterface().getName() + " must be positive");
+			}
+			secured.setIdsBatchSize(securedWith.idsBatchSize());
+			secured.setFindAllByIdKeepsOrder(securedWith.findAllByIdKeepsOrder());
+			secured.setSnapshotChecks(securedWith.snapshotChecks());
+			secured.setWindowCountPaging(securedWith.windowCountPaging());
+			secured.setCountExecutor(getCountExecutor(securedWith));
 			currentlyProcessedRepositoryImplementation.set(secured);
 		}
 
@@ -154,8 +203,20 @@ public class SecuredJpaRepositoryFactory extends JpaRepositoryFactory {
 		final JpaEntityInformation<T, ?> entityInformation = (JpaEntityInformation<T, ?>) getEntityInformation(
 				metadata.getDomainType());
 
-		return new SecuredQuerydslJpaPredicateExecutor<>(entityInformation, entityManager, resolver, crudMethodMetadata,
-				securityMixin);
+		final SecuredQuerydslJpaPredicateExecutor<T> executor = new SecuredQuerydslJpaPredicateExecutor<>(
+				entityInformation, entityManager, resolver, crudMethodMetadata, securityMixin);
+		final SecuredWith securedWith = metadata.getRepositoryInterface().getAnnotation(SecuredWith.class);
+		executor.setWindowCountPaging(securedWith.windowCountPaging());
+		executor.setCountExecutor(getCountExecutor(securedWith));
+		executor.setSecurityMetrics(SecurityMetrics.forRepository(beanFactory, metadata.getRepositoryInterface()));
+		return executor;
+	}
+
+	@Override
+	public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+		super.setBeanFactory(beanFactory);
+		this.beanFactory = beanFactory;
+		this.securityMixinRegistry.setBeanFactory(beanFactory);
 	}
 
 	@Override
@@ -1,37 +1,117 @@
 package com.github.vlsergey.springdata.entitysecurity;
 
+import static java.util.stream.Collectors.toList;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
 import javax.persistence.EntityManager;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.support.CrudMethodMetadata;
 import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.Querydsl;
 import org.springframework.data.jpa.repository.support.QuerydslJpaPredicateExecutor;
 import org.springframework.data.querydsl.EntityPathResolver;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.lang.Nullable;
 
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.core.types.dsl.PathBuilder;
 import com.querydsl.jpa.JPQLQuery;
+import com.querydsl.jpa.impl.JPAQuery;
 
+import lombok.AccessLevel;
 import lombok.NonNull;
+import lombok.Setter;
 
 public class SecuredQuerydslJpaPredicateExecutor<T> extends QuerydslJpaPredicateExecutor<T> {
 
+	private final @NonNull EntityManager entityManager;
+
+	private final @NonNull JpaEntityInformation<T, ?> entityInformation;
+
+	private final @NonNull PathBuilder<T> builder;
+
+	private final @NonNull EntityPath<T> path;
+
+	private final @NonNull Querydsl querydsl;
+
 	private final @NonNull SecurityMixinWithQuerydsl<T, ?> securityMixin;
 
+	@Setter(AccessLevel.PACKAGE)
+	private @Nullable Executor countExecutor;
+
+	@Setter(AccessLevel.PACKAGE)
+	private @NonNull SecurityMetrics securityMetrics = SecurityMetrics.NOOP;
+
+	@Setter(AccessLevel.PACKAGE)
+	private boolean windowCountPaging = false;
+
+	private volatile @Nullable Boolean windowCountFunctionRegistered;
+
+	/**
+	 * Condition built by current call of public method, so query creation methods
+	 * called by superclass do not build it once again
+	 */
+	private final @NonNull ThreadLocal<ConditionWithQuerydsl<T, ?>> callCondition = new ThreadLocal<>();
+
 	public SecuredQuerydslJpaPredicateExecutor(final @NonNull JpaEntityInformation<T, ?> entityInformation,
 			final @NonNull EntityManager entityManager, final @NonNull EntityPathResolver resolver,
 			final @NonNull CrudMethodMetadata metadata, final @NonNull SecurityMixinWithQuerydsl<T, ?> securityMixin) {
 		super(entityInformation, entityManager, resolver, metadata);
+		this.entityManager = entityManager;
+		this.entityInformation = entityInformation;
+		this.path = resolver.createPath(entityInformation.getJavaType());
+		this.builder = new PathBuilder<T>(path.getType(), path.getMetadata());
+		this.querydsl = new Querydsl(entityManager, builder);
 		this.securityMixin = securityMixin;
 	}
 
+	private @NonNull ConditionWithQuerydsl<T, ?> buildCondition() {
+		return TransactionScopedConditions.buildCondition(securityMixin, () -> {
+			final long start = securityMetrics.startTimer();
+			try {
+				return SecurityEvents.INSTANCE.conditionBuild(entityInformation.getJavaType(),
+						securityMixin::buildCondition);
+			} finally {
+				securityMetrics.conditionBuilt(start);
+			}
+		});
+	}
+
+	/**
+	 * @return condition of current public method call or new one if called
+	 *         outside of it
+	 */
+	private @NonNull ConditionWithQuerydsl<T, ?> getCallCondition() {
+		final ConditionWithQuerydsl<T, ?> condition = callCondition.get();
+		return condition != null ? condition : buildCondition();
+	}
+
+	@Override
+	public long count(Predicate predicate) {
+		return switchByCondition(() -> 0L, () -> super.count(predicate));
+	}
+
 	@Override
 	protected JPQLQuery<?> createCountQuery(Predicate... predicate) {
-		final ConditionWithQuerydsl<T, ?> condition = securityMixin.buildCondition();
-		if (condition.isAlwaysTrue()) {
+		final ConditionWithQuerydsl<T, ?> condition = getCallCondition();
+		if (condition.isAlwaysTrue() || enableHibernateFilter(condition)) {
 			return super.createCountQuery(predicate);
 		}
 
-		// TODO: can it be optimized to return 0 if always false?
-
 		JPQLQuery<?> query = super.createCountQuery(predicate);
 		query.where(condition.asPredicate());
 		return query;
@@ -39,16 +119,155 @@ public class SecuredQuerydslJpaPredicateExecutor<T> extends QuerydslJpaPredicate
 
 	@Override
 	protected JPQLQuery<?> createQuery(Predicate... predicate) {
-		final ConditionWithQuerydsl<T, ?> condition = securityMixin.buildCondition();
-		if (condition.isAlwaysTrue()) {
-			return super.createCountQuery(predicate);
+		final ConditionWithQuerydsl<T, ?> condition = getCallCondition();
+		if (condition.isAlwaysTrue() || enableHibernateFilter(condition)) {
+			return super.createQuery(predicate);
 		}
 
-		// TODO: can it be optimized to return empty list if always false?
-
 		JPQLQuery<?> query = super.createQuery(predicate);
 		query.where(condition.asPredicate());
 		return query;
 	}
 
+	/**
+	 * @see SecurityMixin#getHibernateFilterName()
+	 */
+	private boolean enableHibernateFilter(final @NonNull ConditionWithQuerydsl<T, ?> condition) {
+		final String filterName = securityMixin.getHibernateFilterName();
+		return filterName != null
+				&& HibernateUtils.enableFilter(entityManager, filterName, condition.getHibernateFilterParameters());
+	}
+
+	@Override
+	public boolean exists(Predicate predicate) {
+		return switchByCondition(() -> false, () -> super.exists(predicate));
+	}
+
+	@Override
+	public List<T> findAll(OrderSpecifier<?>... orders) {
+		return switchByCondition(Collections::emptyList, () -> super.findAll(orders));
+	}
+
+	@Override
+	public List<T> findAll(Predicate predicate) {
+		return switchByCondition(Collections::emptyList, () -> super.findAll(predicate));
+	}
+
+	@Override
+	public List<T> findAll(Predicate predicate, OrderSpecifier<?>... orders) {
+		return switchByCondition(Collections::emptyList, () -> super.findAll(predicate, orders));
+	}
+
+	@Override
+	public Page<T> findAll(Predicate predicate, Pageable pageable) {
+		return switchByCondition(() -> Page.empty(pageable), () -> {
+			if (pageable.isPaged() && windowCountPaging && entityInformation.getIdAttribute() != null
+					&& isWindowCountFunctionRegistered()) {
+				return findPageWithWindowCount(predicate, pageable);
+			}
+			if (pageable.isPaged() && countExecutor != null && securityMixin.getHibernateFilterName() == null) {
+				return findPageWithParallelCount(predicate, pageable, countExecutor);
+			}
+			return super.findAll(predicate, pageable);
+		});
+	}
+
+	/**
+	 * Same as {@link QuerydslJpaPredicateExecutor#findAll(Predicate, Pageable)},
+	 * but count query is started before content one and executed in parallel.
+	 *
+	 * @see ParallelCountQuery
+	 */
+	private Page<T> findPageWithParallelCount(final Predicate predicate, final @NonNull Pageable pageable,
+			final @NonNull Executor executor) {
+		final ConditionWithQuerydsl<T, ?> condition = getCallCondition();
+		final Predicate securityPredicate = condition.isAlwaysTrue() ? null : condition.asPredicate();
+		final ParallelCountQuery countQuery = new ParallelCountQuery(entityManager, executor,
+				countEntityManager -> new JPAQuery<>(countEntityManager).from(path)
+						.where(predicate, securityPredicate).fetchCount());
+
+		final List<T> content = querydsl.applyPagination(pageable, createQuery(predicate).select(path)).fetch();
+		return PageableExecutionUtils.getPage(content, pageable, countQuery::join);
+	}
+
+	/**
+	 * Selects page content together with <tt>count(id) over()</tt>, i.e. with
+	 * total number of rows matching the condition, in a single query.
+	 *
+	 * @see WindowCountMetadataBuilderContributor
+	 */
+	private Page<T> findPageWithWindowCount(final Predicate predicate, final @NonNull Pageable pageable) {
+		final NumberExpression<Long> total = Expressions.numberTemplate(Long.class,
+				WindowCountMetadataBuilderContributor.FUNCTION_NAME + "({0})",
+				builder.get(entityInformation.getIdAttribute().getName()));
+
+		final JPQLQuery<Tuple> query = querydsl.applyPagination(pageable, createQuery(predicate).select(path, total));
+		final List<Tuple> rows = query.fetch();
+
+		final List<T> content = rows.stream().map(row -> row.get(path)).collect(toList());
+		if (rows.isEmpty()) {
+			// total is unknown if requested page is beyond the last one
+			return PageableExecutionUtils.getPage(content, pageable, () -> createCountQuery(predicate).fetchCount());
+		}
+		return new PageImpl<>(content, pageable, rows.get(0).get(total));
+	}
+
+	private boolean isWindowCountFunctionRegistered() {
+		Boolean registered = windowCountFunctionRegistered;
+		if (registered == null) {
+			registered = HibernateUtils.isSqlFunctionRegistered(entityManager.getEntityManagerFactory(),
+					WindowCountMetadataBuilderContributor.FUNCTION_NAME);
+			windowCountFunctionRegistered = registered;
+		}
+		return registered;
+	}
+
+	@Override
+	public List<T> findAll(Predicate predicate, Sort sort) {
+		return switchByCondition(Collections::emptyList, () -> super.findAll(predicate, sort));
+	}
+
+	@Override
+	public Optional<T> findOne(Predicate predicate) {
+		return switchByCondition(Optional::empty, () -> super.findOne(predicate));
+	}
+
+	/**
+	 * Returns result without touching database if user has no access to any
+	 * entity. Otherwise built condition is used by queries of the call.
+	 */
+	private <V> V switchByCondition(final @NonNull Supplier<V> ifAlwaysFalse, final @NonNull Supplier<V> otherwise) {
+		final ConditionWithQuerydsl<T, ?> condition = buildCondition();
+		if (condition.isAlwaysFalse()) {
+			securityMetrics.conditionShortCircuited(QueryType.SELECT, false);
+			return ifAlwaysFalse.get();
+		}
+
+		final ConditionWithQuerydsl<T, ?> previous = callCondition.get();
+		callCondition.set(condition);
+		try {
+			if (condition.isAlwaysTrue()) {
+				securityMetrics.conditionShortCircuited(QueryType.SELECT, true);
+				return withoutHibernateFilter(otherwise);
+			}
+			return otherwise.get();
+		} finally {
+			if (previous == null) {
+				callCondition.remove();
+			} else {
+				callCondition.set(previous);
+			}
+		}
+	}
+
+	/**
+	 * Executes query of user with always true condition, that must not be
+	 * restricted by security filter enabled earlier in current transaction
+	 */
+	private <V> V withoutHibernateFilter(final @NonNull Supplier<V> execution) {
+		final String filterName = securityMixin.getHibernateFilterName();
+		return filterName == null ? execution.get()
+				: HibernateUtils.withFilterDisabled(entityManager, filterName, execution);
+	}
+
 }
@@ -6,10 +6,82 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
 
+import org.springframework.data.jpa.repository.JpaRepository;
+
 @Retention(RUNTIME)
 @Target(ElementType.TYPE)
 public @interface SecuredWith {
 
 	Class<? extends SecurityMixin<?, ?>> value();
 
+	/**
+	 * Maximum number of IDs passed to a single <tt>IN (...)</tt> clause by batch
+	 * methods like {@link JpaRepository#findAllById(Iterable)}. Bigger ID sets are
+	 * split into several queries to stay under JDBC driver parameters limit.
+	 */
+	int idsBatchSize() default SecuredJpaRepository.DEFAULT_IDS_BATCH_SIZE;
+
+	/**
+	 * If {@literal true}, {@link JpaRepository#findAllById(Iterable)} returns
+	 * entities in the order of passed IDs. Otherwise order is defined by database.
+	 */
+	boolean findAllByIdKeepsOrder() default false;
+
+	/**
+	 * If {@literal true}, old state of managed entities on save and delete is
+	 * checked with {@link Condition#checkEntity(JpaRepository, Object, QueryType)}
+	 * against snapshot of entity state kept by Hibernate persistence context
+	 * (values as they were loaded from or last flushed to database). It saves
+	 * database queries and does not discard in-memory changes (like
+	 * {@link javax.persistence.EntityManager#refresh(Object)} does), but requires
+	 * {@link Condition#checkEntity(JpaRepository, Object, QueryType)} to be
+	 * consistent with {@link Condition#toPredicate}. Changes made in database
+	 * after entity was loaded are not seen.
+	 *
+	 * Ignored (queries are used) if JPA provider is not Hibernate or entity has
+	 * collection properties: Hibernate does not keep loaded state of
+	 * collections.
+	 */
+	boolean snapshotChecks() default false;
+
+	/**
+	 * If {@literal true}, paged <tt>findAll</tt> methods of repository and
+	 * Querydsl executor select page content and total number of elements with
+	 * single query using <tt>COUNT(...) OVER()</tt> window function, thus
+	 * security condition is evaluated once instead of twice. Requires
+	 * {@link WindowCountMetadataBuilderContributor} to be registered in
+	 * Hibernate, otherwise (or if JPA provider is not Hibernate) separate count
+	 * query is used as usual. Count query is also used if requested page is
+	 * beyond the last one or query is <tt>DISTINCT</tt>.
+	 */
+	boolean windowCountPaging() default false;
+
+	/**
+	 * If {@literal true}, count query of paged <tt>findAll</tt> methods of
+	 * repository and Querydsl executor is executed in parallel with content
+	 * query, using separate {@link javax.persistence.EntityManager} (thus
+	 * separate database connection) in a thread of {@link #countExecutor()}.
+	 * Since separate connection is used, count does not see changes of current
+	 * transaction that are not committed yet. Ignored if security is enforced
+	 * with Hibernate filter ({@link SecurityMixin#getHibernateFilterName()}),
+	 * because filter is enabled in current session only.
+	 *
+	 * <p>
+	 * <b>Important: </b> each page request uses two database connections at
+	 * once, the caller one and the count one. Count executor must have fewer
+	 * threads than connection pool has connections, otherwise count queries may
+	 * take all connections while callers hold theirs and wait for counts. If
+	 * count query is not started by executor by the time content query is
+	 * completed, count is executed by caller with caller connection instead.
+	 */
+	boolean parallelCount() default false;
+
+	/**
+	 * Name of {@link java.util.concurrent.Executor} bean to execute parallel
+	 * count queries with (see {@link #parallelCount()}). If empty, shared
+	 * executor with at most 4 threads is used (virtual threads on Java 21+ and
+	 * daemon threads otherwise).
+	 */
+	String countExecutor() default "";
+
 }
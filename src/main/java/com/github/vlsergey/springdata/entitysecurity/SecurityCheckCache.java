@@ -0,0 +1,35 @@
+package com.github.vlsergey.springdata.entitysecurity;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+import lombok.NonNull;
+
+/**
+ * Cache of {@link Condition#checkEntity} results. Used only for conditions that
+ * provide both {@link Condition#getCurrentUserSecurityCheckCacheKey()} and
+ * {@link Condition#getEntitySecurityCheckCacheKey(Object)}.
+ *
+ * Denied checks may be cached as well. For such keys
+ * {@link SecurityMixin#onForbiddenOperation(Object, QueryType)} is called
+ * instead of {@link Condition#checkEntity}, thus it shall throw an exception.
+ *
+ * By default {@link TransactionScopedSecurityCheckCache} is used. Define a bean
+ * of this type (like {@link BoundedSecurityCheckCache}) to replace it for all
+ * secured repositories.
+ */
+@ThreadSafe
+public interface SecurityCheckCache {
+
+	boolean isAllowed(@NonNull SecurityCheckCacheKey key);
+
+	void putAllowed(@NonNull SecurityCheckCacheKey key);
+
+	default boolean isDenied(@NonNull SecurityCheckCacheKey key) {
+		return false;
+	}
+
+	default void putDenied(@NonNull SecurityCheckCacheKey key) {
+		// NO OP
+	}
+
+}
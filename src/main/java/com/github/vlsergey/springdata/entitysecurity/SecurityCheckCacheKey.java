@@ -0,0 +1,27 @@
+package com.github.vlsergey.springdata.entitysecurity;
+
+import lombok.NonNull;
+import lombok.Value;
+
+@Value
+public class SecurityCheckCacheKey {
+
+	/**
+	 * Repository interface, so same entity keys of different repositories are not
+	 * mixed
+	 */
+	@NonNull Class<?> repositoryInterface;
+
+	@NonNull QueryType queryType;
+
+	/**
+	 * @see Condition#getCurrentUserSecurityCheckCacheKey()
+	 */
+	@NonNull Object currentUserKey;
+
+	/**
+	 * @see Condition#getEntitySecurityCheckCacheKey(Object)
+	 */
+	@NonNull Object entityKey;
+
+}
@@ -0,0 +1,102 @@
+package com.github.vlsergey.springdata.entitysecurity;
+
+import java.util.function.Supplier;
+
+import org.springframework.util.ClassUtils;
+
+import lombok.NonNull;
+
+/**
+ * Java Flight Recorder events of the security layer. Event classes can not be
+ * compiled against Java 8 API, thus {@link #INSTANCE} is loaded reflectively
+ * from separate <tt>jfr</tt> source set (compiled for Java 11) if JFR is
+ * available. Otherwise (including Java 8u262+ with JFR, where event classes
+ * can not be loaded) methods just call passed suppliers.
+ */
+interface SecurityEvents {
+
+	String CACHE_DENIED = "DENIED";
+
+	String CACHE_HIT = "HIT";
+
+	String CACHE_MISS = "MISS";
+
+	String INJECTION_ALWAYS_TRUE = "ALWAYS_TRUE";
+
+	String INJECTION_HIBERNATE_FILTER = "HIBERNATE_FILTER";
+
+	String INJECTION_PREDICATE = "PREDICATE";
+
+	String NOT_CACHEABLE = "NOT_CACHEABLE";
+
+	SecurityEvents NOOP = new SecurityEvents() {
+	};
+
+	SecurityEvents INSTANCE = load();
+
+	static @NonNull SecurityEvents load() {
+		final ClassLoader classLoader = SecurityEvents.class.getClassLoader();
+		if (!ClassUtils.isPresent("jdk.jfr.Event", classLoader)) {
+			return NOOP;
+		}
+		try {
+			return (SecurityEvents) ClassUtils
+					.forName(SecurityEvents.class.getPackage().getName() + ".JfrSecurityEvents", classLoader)
+					.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError exc) {
+			return NOOP;
+		}
+	}
+
+	/**
+	 * Executes database query made by security layer itself to check entities
+	 * before write operation
+	 *
+	 * @param query short description of the query, like <tt>existsById</tt>
+	 */
+	default <V> V checkQuery(final @NonNull Class<?> entityType, final @NonNull QueryType queryType,
+			final @NonNull String query, final @NonNull Supplier<V> execution) {
+		return execution.get();
+	}
+
+	/**
+	 * Executes {@link SecurityMixin#buildCondition()} call
+	 */
+	default <C> C conditionBuild(final @NonNull Class<?> entityType, final @NonNull Supplier<C> builder) {
+		return builder.get();
+	}
+
+	/**
+	 * Converts <tt>CriteriaQuery</tt> of derived query method to
+	 * <tt>TypedQuery</tt> after security condition is injected into it
+	 *
+	 * @param roots     number of query roots, condition is applied to the one of
+	 *                  <tt>entityType</tt>
+	 * @param injection {@link #INJECTION_PREDICATE},
+	 *                  {@link #INJECTION_HIBERNATE_FILTER} or
+	 *                  {@link #INJECTION_ALWAYS_TRUE} (nothing is injected)
+	 */
+	default <Q> Q conditionInjection(final @NonNull Class<?> entityType, final int roots,
+			final @NonNull String injection, final @NonNull Supplier<Q> createQuery) {
+		return createQuery.get();
+	}
+
+	/**
+	 * Executes {@link Condition#checkEntity} call
+	 *
+	 * @param cacheOutcome {@link #CACHE_MISS} or {@link #NOT_CACHEABLE}
+	 */
+	default void entityCheck(final @NonNull Class<?> entityType, final @NonNull QueryType queryType,
+			final @NonNull String cacheOutcome, final @NonNull Runnable check) {
+		check.run();
+	}
+
+	/**
+	 * Result of {@link Condition#checkEntity} was taken from
+	 * {@link SecurityCheckCache}
+	 */
+	default void entityCheckCached(final @NonNull Class<?> entityType, final @NonNull QueryType queryType,
+			final boolean allowed) {
+	}
+
+}
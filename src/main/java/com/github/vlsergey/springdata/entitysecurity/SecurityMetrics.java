@@ -0,0 +1,87 @@
+package com.github.vlsergey.springdata.entitysecurity;
+
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+
+import lombok.NonNull;
+
+/**
+ * Instrumentation of the security layer of single repository. Without
+ * Micrometer {@link #NOOP} instance is used, and its methods are empty, thus
+ * calls are eliminated by JIT.
+ *
+ * @see MicrometerSecurityMetrics
+ */
+interface SecurityMetrics {
+
+	SecurityMetrics NOOP = new SecurityMetrics() {
+	};
+
+	/**
+	 * @return {@link MicrometerSecurityMetrics} if Micrometer is present in
+	 *         classpath and there is <tt>MeterRegistry</tt> bean, {@link #NOOP}
+	 *         otherwise
+	 */
+	static @NonNull SecurityMetrics forRepository(final @Nullable BeanFactory beanFactory,
+			final @NonNull Class<?> repositoryInterface) {
+		if (beanFactory == null || !ClassUtils.isPresent("io.micrometer.core.instrument.MeterRegistry",
+				SecurityMetrics.class.getClassLoader())) {
+			return NOOP;
+		}
+		return MicrometerSecurityMetrics.forRepository(beanFactory, repositoryInterface);
+	}
+
+	/**
+	 * Result of {@link Condition#checkEntity} was taken from
+	 * {@link SecurityCheckCache}
+	 *
+	 * @param allowed {@literal false} if cached result is denial
+	 */
+	default void checkCacheHit(final @NonNull QueryType queryType, final boolean allowed) {
+	}
+
+	/**
+	 * {@link SecurityCheckCache} has no result for entity check
+	 */
+	default void checkCacheMiss(final @NonNull QueryType queryType) {
+	}
+
+	/**
+	 * Database query was made by security layer itself to check entity before
+	 * write operation (in addition to queries of the operation itself)
+	 */
+	default void checkQueryExecuted(final @NonNull QueryType queryType) {
+	}
+
+	/**
+	 * @param startNanos result of {@link #startTimer()} called before
+	 *                   {@link SecurityMixin#buildCondition()}
+	 */
+	default void conditionBuilt(final long startNanos) {
+	}
+
+	/**
+	 * Condition was not applied, because it is always true (operation queries
+	 * database without security restriction) or always false (result is
+	 * returned without database queries)
+	 */
+	default void conditionShortCircuited(final @NonNull QueryType queryType, final boolean alwaysTrue) {
+	}
+
+	/**
+	 * @param startNanos result of {@link #startTimer()} called before
+	 *                   {@link Condition#checkEntity}
+	 */
+	default void entityChecked(final @NonNull QueryType queryType, final long startNanos) {
+	}
+
+	/**
+	 * @return {@link System#nanoTime()} if timers are enabled, <tt>0</tt>
+	 *         otherwise
+	 */
+	default long startTimer() {
+		return 0;
+	}
+
+}
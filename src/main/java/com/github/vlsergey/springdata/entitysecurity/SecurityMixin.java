@@ -9,6 +9,46 @@ public interface SecurityMixin<T, R extends JpaRepository<T, ?>> {
 
 	Condition<T, R> buildCondition();
 
+	/**
+	 * Allows to reuse single {@link Condition} instance for multiple repository
+	 * calls in the same transaction instead of calling {@link #buildCondition()}
+	 * each time. Returned key must identify everything condition depends on (like
+	 * current user ID and his roles). Returned condition must be immutable to be
+	 * memoized.
+	 *
+	 * @return key to memoize built condition with, <tt>null</tt> means condition
+	 *         is built for each repository call
+	 */
+	default Object getConditionMemoizationKey() {
+		return null;
+	}
+
+	/**
+	 * Hibernate-only alternative to criteria rewriting for
+	 * {@link QueryType#SELECT} queries. If name is returned, the filter (declared
+	 * with Hibernate <tt>@FilterDef</tt> and <tt>@Filter</tt> annotations on the
+	 * entity and its associations) is enabled in current session with parameters
+	 * from {@link Condition#getHibernateFilterParameters()} instead of adding
+	 * {@link Condition#toPredicate} result to queries. Filter stays enabled till
+	 * the end of current transaction, thus it is also applied to lazy
+	 * associations loaded later. Criteria rewriting is still used if filter can
+	 * not be enabled (JPA provider is not Hibernate or there is no transaction).
+	 *
+	 * <p>
+	 * Note that Hibernate filters are not applied to loading by ID (like
+	 * {@link javax.persistence.EntityManager#find(Class, Object)}), repository
+	 * uses queries instead. Checks of
+	 * {@link QueryType#INSERT}/{@link QueryType#UPDATE}/{@link QueryType#DELETE}
+	 * operations are not affected: their queries are executed with filter
+	 * temporarily disabled. Calls of user with always true condition disable
+	 * filter as well.
+	 *
+	 * @return name of Hibernate filter, <tt>null</tt> means filters are not used
+	 */
+	default String getHibernateFilterName() {
+		return null;
+	}
+
 	default void onForbiddenDelete(T entity) {
 		onForbiddenOperation(entity, QueryType.DELETE);
 	}
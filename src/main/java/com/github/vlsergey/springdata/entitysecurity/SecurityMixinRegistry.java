@@ -0,0 +1,63 @@
+package com.github.vlsergey.springdata.entitysecurity;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.data.querydsl.QuerydslPredicateExecutor;
+import org.springframework.lang.Nullable;
+
+import lombok.AccessLevel;
+import lombok.NonNull;
+import lombok.Setter;
+
+/**
+ * Holds single {@link SecurityMixin} instance per repository interface. Mixin
+ * class specified in {@link SecuredWith} annotation is resolved as following:
+ * <ul>
+ * <li>existing bean of this class, if there is single such bean in
+ * application context (allows mixin to be configured as usual bean and to
+ * share state with other beans);
+ * <li>new instance created by application context autowire-capable bean
+ * factory (thus mixin can use {@link org.springframework.beans.factory.annotation.Autowired}
+ * fields or constructor);
+ * <li>new instance created with default constructor if there is no bean
+ * factory.
+ * </ul>
+ */
+class SecurityMixinRegistry {
+
+	@Setter(AccessLevel.PACKAGE)
+	private @Nullable BeanFactory beanFactory;
+
+	private final ConcurrentMap<Class<?>, SecurityMixin<?, ?>> mixins = new ConcurrentHashMap<>();
+
+	private SecurityMixin<?, ?> createSecurityMixin(final @NonNull Class<?> repositoryInterface) {
+		final SecuredWith securedWith = repositoryInterface.getAnnotation(SecuredWith.class);
+		if (securedWith == null) {
+			return QuerydslPredicateExecutor.class.isAssignableFrom(repositoryInterface)
+					? StandardConditions.alwaysAllowSecurityMixinWithQuerydsl()
+					: StandardConditions.alwaysAllowSecurityMixin();
+		}
+
+		final Class<? extends SecurityMixin<?, ?>> mixinClass = securedWith.value();
+		if (beanFactory != null) {
+			final SecurityMixin<?, ?> bean = beanFactory.getBeanProvider(mixinClass).getIfUnique();
+			if (bean != null) {
+				return bean;
+			}
+			if (beanFactory instanceof AutowireCapableBeanFactory) {
+				return ((AutowireCapableBeanFactory) beanFactory).createBean(mixinClass);
+			}
+		}
+		return BeanUtils.instantiateClass(mixinClass);
+	}
+
+	@SuppressWarnings("unchecked")
+	<M extends SecurityMixin<?, ?>> M getSecurityMixin(final @NonNull Class<?> repositoryInterface) {
+		return (M) mixins.computeIfAbsent(repositoryInterface, this::createSecurityMixin);
+	}
+
+}
@@ -0,0 +1,48 @@
+package com.github.vlsergey.springdata.entitysecurity;
+
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.lang.Nullable;
+
+/**
+ * Streaming versions of <tt>findAll</tt> methods of
+ * {@link org.springframework.data.jpa.repository.JpaSpecificationExecutor}.
+ * Secured repository applies {@link QueryType#SELECT} condition to the query
+ * and reads results with forward-only cursor instead of loading all of them
+ * into memory.
+ *
+ * Like any query stream, returned one must be consumed inside transaction and
+ * closed after use (for example with <tt>try-with-resources</tt>).
+ *
+ * Extend repository interface with this one to use these methods.
+ */
+public interface StreamingExecutor<T> {
+
+	/**
+	 * @param spec      additional condition, can be {@literal null}
+	 * @param fetchSize number of rows fetched from database at once, must be
+	 *                  positive
+	 * @see #streamAll(Specification, Sort, int, boolean)
+	 */
+	Stream<T> streamAll(@Nullable Specification<T> spec, int fetchSize);
+
+	/**
+	 * @param spec      additional condition, can be {@literal null}
+	 * @param sort      order of entities, can be {@link Sort#unsorted()}
+	 * @param fetchSize number of rows fetched from database at once, must be
+	 *                  positive
+	 * @param detach    if {@literal true} each entity is detached from
+	 *                  persistence context when next one is read (and the last
+	 *                  one when stream is closed), thus memory usage does not
+	 *                  grow with number of streamed entities. Changes of
+	 *                  detached entities are not flushed, call
+	 *                  {@link EntityManager#flush()} before moving to the next
+	 *                  entity if needed.
+	 */
+	Stream<T> streamAll(@Nullable Specification<T> spec, Sort sort, int fetchSize, boolean detach);
+
+}
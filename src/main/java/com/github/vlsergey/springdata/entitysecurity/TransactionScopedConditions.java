@@ -0,0 +1,56 @@
+package com.github.vlsergey.springdata.entitysecurity;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.NonNull;
+
+/**
+ * Keeps conditions built by {@link SecurityMixin#buildCondition()} till the end
+ * of current transaction if mixin provides
+ * {@link SecurityMixin#getConditionMemoizationKey()}. Nothing is memoized if
+ * there is no active transaction.
+ */
+final class TransactionScopedConditions {
+
+	private static final Object TXSM_KEY = TransactionScopedConditions.class;
+
+	@SuppressWarnings("unchecked")
+	static <C extends Condition<?, ?>> C buildCondition(final @NonNull SecurityMixin<?, ?> securityMixin,
+			final @NonNull Supplier<C> builder) {
+		if (!TransactionSynchronizationManager.isActualTransactionActive()
+				|| !TransactionSynchronizationManager.isSynchronizationActive()) {
+			return builder.get();
+		}
+
+		final Object memoizationKey = securityMixin.getConditionMemoizationKey();
+		if (memoizationKey == null) {
+			return builder.get();
+		}
+
+		Map<Object, Condition<?, ?>> conditions = (Map<Object, Condition<?, ?>>) TransactionSynchronizationManager
+				.getResource(TXSM_KEY);
+		if (conditions == null) {
+			conditions = new HashMap<>();
+			TransactionSynchronizationManager.bindResource(TXSM_KEY, conditions);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResource(TXSM_KEY);
+				}
+			});
+		}
+
+		return (C) conditions.computeIfAbsent(new SimpleImmutableEntry<>(securityMixin, memoizationKey),
+				k -> builder.get());
+	}
+
+	private TransactionScopedConditions() {
+	}
+
+}
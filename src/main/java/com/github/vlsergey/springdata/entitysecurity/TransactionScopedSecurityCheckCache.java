@@ -0,0 +1,70 @@
+package com.github.vlsergey.springdata.entitysecurity;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.NonNull;
+
+/**
+ * Keeps successful and denied checks till the end of current transaction.
+ * Nothing is cached if there is no active transaction.
+ */
+public class TransactionScopedSecurityCheckCache implements SecurityCheckCache {
+
+	public static final TransactionScopedSecurityCheckCache INSTANCE = new TransactionScopedSecurityCheckCache();
+
+	@SuppressWarnings("unchecked")
+	private Map<SecurityCheckCacheKey, Boolean> getTransactionCache(boolean create) {
+		if (!TransactionSynchronizationManager.isActualTransactionActive()
+				|| !TransactionSynchronizationManager.isSynchronizationActive()) {
+			return null;
+		}
+
+		final Object resource = TransactionSynchronizationManager.getResource(this);
+		Map<SecurityCheckCacheKey, Boolean> cache = (Map<SecurityCheckCacheKey, Boolean>) resource;
+		if (cache == null && create) {
+			cache = new HashMap<>();
+			TransactionSynchronizationManager.bindResource(this, cache);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResource(TransactionScopedSecurityCheckCache.this);
+				}
+			});
+		}
+		return cache;
+	}
+
+	@Override
+	public boolean isAllowed(final @NonNull SecurityCheckCacheKey key) {
+		final Map<SecurityCheckCacheKey, Boolean> cache = getTransactionCache(false);
+		return cache != null && Boolean.TRUE.equals(cache.get(key));
+	}
+
+	@Override
+	public boolean isDenied(final @NonNull SecurityCheckCacheKey key) {
+		final Map<SecurityCheckCacheKey, Boolean> cache = getTransactionCache(false);
+		return cache != null && Boolean.FALSE.equals(cache.get(key));
+	}
+
+	@Override
+	public void putAllowed(final @NonNull SecurityCheckCacheKey key) {
+		put(key, true);
+	}
+
+	@Override
+	public void putDenied(final @NonNull SecurityCheckCacheKey key) {
+		put(key, false);
+	}
+
+	private void put(final @NonNull SecurityCheckCacheKey key, boolean allowed) {
+		final Map<SecurityCheckCacheKey, Boolean> cache = getTransactionCache(true);
+		if (cache != null) {
+			cache.put(key, allowed);
+		}
+	}
+
+}
@@ -0,0 +1,33 @@
+package com.github.vlsergey.springdata.entitysecurity;
+
+import org.hibernate.boot.MetadataBuilder;
+import org.hibernate.boot.spi.MetadataBuilderContributor;
+import org.hibernate.dialect.function.SQLFunctionTemplate;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Registers <tt>COUNT(...) OVER()</tt> window function in Hibernate, so pages
+ * of repositories with {@link SecuredWith#windowCountPaging()} enabled are
+ * selected together with total number of elements using single query. Hibernate
+ * 5 HQL does not support window functions by itself.
+ *
+ * To enable, set <tt>hibernate.metadata_builder_contributor</tt> property (or
+ * <tt>spring.jpa.properties.hibernate.metadata_builder_contributor</tt> in
+ * Spring Boot) to the name of this class. Database must support window
+ * functions.
+ */
+public class WindowCountMetadataBuilderContributor implements MetadataBuilderContributor {
+
+	/**
+	 * <tt>entity_security_count_over(x)</tt> is rendered as <tt>count(x)
+	 * over()</tt>
+	 */
+	public static final String FUNCTION_NAME = "entity_security_count_over";
+
+	@Override
+	public void contribute(MetadataBuilder metadataBuilder) {
+		metadataBuilder.applySqlFunction(FUNCTION_NAME,
+				new SQLFunctionTemplate(StandardBasicTypes.LONG, "count(?1) over()"));
+	}
+
+}
@@ -0,0 +1,69 @@
+package com.github.vlsergey.springdata.entitysecurity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+class BoundedSecurityCheckCacheTest {
+
+	private static SecurityCheckCacheKey key(Object user, Object entity) {
+		return new SecurityCheckCacheKey(Object.class, QueryType.UPDATE, user, entity);
+	}
+
+	@Test
+	void deniedChecksAreCachedOnlyIfConfigured() {
+		final BoundedSecurityCheckCache withoutDenied = new BoundedSecurityCheckCache(10, Duration.ofHours(1));
+		withoutDenied.putDenied(key("user", 1));
+		assertFalse(withoutDenied.isDenied(key("user", 1)));
+
+		final BoundedSecurityCheckCache withDenied = new BoundedSecurityCheckCache(10, Duration.ofHours(1), 1,
+				Duration.ofHours(1));
+		withDenied.putDenied(key("user", 1));
+		assertTrue(withDenied.isDenied(key("user", 1)));
+		assertFalse(withDenied.isAllowed(key("user", 1)));
+
+		// own size limit for denied checks
+		withDenied.putDenied(key("user", 2));
+		assertFalse(withDenied.isDenied(key("user", 1)));
+		assertTrue(withDenied.isDenied(key("user", 2)));
+	}
+
+	@Test
+	void eldestEntriesAreEvictedOnOverflow() {
+		final BoundedSecurityCheckCache cache = new BoundedSecurityCheckCache(2, Duration.ofHours(1));
+		cache.putAllowed(key("user", 1));
+		cache.putAllowed(key("user", 2));
+		cache.putAllowed(key("user", 3));
+
+		assertEquals(2, cache.size());
+		assertFalse(cache.isAllowed(key("user", 1)));
+		assertTrue(cache.isAllowed(key("user", 2)));
+		assertTrue(cache.isAllowed(key("user", 3)));
+	}
+
+	@Test
+	void entriesExpire() throws InterruptedException {
+		final BoundedSecurityCheckCache cache = new BoundedSecurityCheckCache(10, Duration.ofMillis(1));
+		cache.putAllowed(key("user", 1));
+		Thread.sleep(10);
+
+		assertFalse(cache.isAllowed(key("user", 1)));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	void keysOfDifferentUsersAndQueryTypesAreNotMixed() {
+		final BoundedSecurityCheckCache cache = new BoundedSecurityCheckCache(10, Duration.ofHours(1));
+		cache.putAllowed(key("user", 1));
+
+		assertTrue(cache.isAllowed(key("user", 1)));
+		assertFalse(cache.isAllowed(key("other", 1)));
+		assertFalse(cache.isAllowed(new SecurityCheckCacheKey(Object.class, QueryType.DELETE, "user", 1)));
+		assertFalse(cache.isAllowed(new SecurityCheckCacheKey(String.class, QueryType.UPDATE, "user", 1)));
+	}
+
+}
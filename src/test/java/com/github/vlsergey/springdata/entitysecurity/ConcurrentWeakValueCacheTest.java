@@ -0,0 +1,64 @@
+package com.github.vlsergey.springdata.entitysecurity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class ConcurrentWeakValueCacheTest {
+
+	@Test
+	void valueIsComputedOnceForConcurrentCalls() throws Exception {
+		final int threads = 64;
+		final ConcurrentWeakValueCache<String, Object> cache = new ConcurrentWeakValueCache<>();
+		final AtomicInteger computations = new AtomicInteger();
+		final CountDownLatch start = new CountDownLatch(1);
+
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final List<Future<Object>> futures = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					return cache.computeIfAbsent("key", key -> {
+						computations.incrementAndGet();
+						return new Object();
+					});
+				}));
+			}
+			start.countDown();
+
+			final Object first = futures.get(0).get(1, TimeUnit.MINUTES);
+			for (Future<Object> future : futures) {
+				assertSame(first, future.get(1, TimeUnit.MINUTES));
+			}
+			assertEquals(1, computations.get());
+			assertEquals(1, cache.size());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void valuesAreComputedPerKey() {
+		final ConcurrentWeakValueCache<String, Object> cache = new ConcurrentWeakValueCache<>();
+		final Object first = cache.computeIfAbsent("first", key -> new Object());
+		final Object second = cache.computeIfAbsent("second", key -> new Object());
+
+		assertNotSame(first, second);
+		assertSame(first, cache.computeIfAbsent("first", key -> new Object()));
+		assertSame(second, cache.computeIfAbsent("second", key -> new Object()));
+		assertEquals(2, cache.size());
+	}
+
+}
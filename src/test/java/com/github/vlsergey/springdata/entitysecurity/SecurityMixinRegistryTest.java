@@ -0,0 +1,78 @@
+package com.github.vlsergey.springdata.entitysecurity;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+class SecurityMixinRegistryTest {
+
+	static class TestEntity {
+	}
+
+	static class TestMixin implements SecurityMixin<TestEntity, TestRepository> {
+
+		@Autowired
+		Environment environment;
+
+		@Override
+		public Condition<TestEntity, TestRepository> buildCondition() {
+			return StandardConditions.alwaysAllowCondition();
+		}
+
+		@Override
+		public void onForbiddenOperation(TestEntity entity, QueryType queryType) {
+		}
+	}
+
+	@SecuredWith(TestMixin.class)
+	interface TestRepository extends JpaRepository<TestEntity, Long> {
+	}
+
+	interface NotSecuredRepository extends JpaRepository<TestEntity, Long> {
+	}
+
+	@Test
+	void alwaysAllowMixinIsUsedWithoutAnnotation() {
+		final SecurityMixinRegistry registry = new SecurityMixinRegistry();
+		assertSame(StandardConditions.alwaysAllowSecurityMixin(),
+				registry.getSecurityMixin(NotSecuredRepository.class));
+	}
+
+	@Test
+	void mixinBeanIsUsedIfPresent() {
+		final TestMixin bean = new TestMixin();
+		try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+			context.registerBean(TestMixin.class, () -> bean);
+			context.refresh();
+
+			final SecurityMixinRegistry registry = new SecurityMixinRegistry();
+			registry.setBeanFactory(context.getBeanFactory());
+			assertSame(bean, registry.getSecurityMixin(TestRepository.class));
+		}
+	}
+
+	@Test
+	void mixinIsAutowiredIfNotBean() {
+		try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+			context.refresh();
+
+			final SecurityMixinRegistry registry = new SecurityMixinRegistry();
+			registry.setBeanFactory(context.getBeanFactory());
+			final TestMixin mixin = registry.getSecurityMixin(TestRepository.class);
+			assertNotNull(mixin.environment);
+		}
+	}
+
+	@Test
+	void singleInstanceIsSharedPerRepository() {
+		final SecurityMixinRegistry registry = new SecurityMixinRegistry();
+		final SecurityMixin<?, ?> first = registry.getSecurityMixin(TestRepository.class);
+		assertSame(first, registry.getSecurityMixin(TestRepository.class));
+	}
+
+}
@@ -0,0 +1,122 @@
+package com.github.vlsergey.springdata.entitysecurity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.persistence.criteria.CommonAbstractCriteria;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class TransactionScopedConditionsTest {
+
+	private final AtomicInteger builds = new AtomicInteger();
+
+	private final AtomicReference<Object> memoizationKey = new AtomicReference<>();
+
+	private final SecurityMixin<Object, ?> securityMixin = new SecurityMixin<Object, TestRepository>() {
+
+		@Override
+		public Condition<Object, TestRepository> buildCondition() {
+			builds.incrementAndGet();
+			return new Condition<Object, TestRepository>() {
+
+				@Override
+				public void checkEntity(TestRepository repository, Object entity, QueryType queryType) {
+				}
+
+				@Override
+				public Predicate toPredicate(Root<Object> root, CommonAbstractCriteria cac, CriteriaBuilder cb,
+						QueryType queryType) {
+					return null;
+				}
+			};
+		}
+
+		@Override
+		public Object getConditionMemoizationKey() {
+			return memoizationKey.get();
+		}
+
+		@Override
+		public void onForbiddenOperation(Object entity, QueryType queryType) {
+		}
+	};
+
+	interface TestRepository extends JpaRepository<Object, Long> {
+	}
+
+	@AfterEach
+	void afterEach() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.getSynchronizations()
+					.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+		}
+		TransactionSynchronizationManager.clear();
+	}
+
+	@BeforeEach
+	void beforeEach() {
+		TransactionSynchronizationManager.initSynchronization();
+		TransactionSynchronizationManager.setActualTransactionActive(true);
+	}
+
+	private Condition<?, ?> build() {
+		return TransactionScopedConditions.buildCondition(securityMixin, securityMixin::buildCondition);
+	}
+
+	@Test
+	void conditionIsBuiltEachTimeWithoutKey() {
+		assertNotSame(build(), build());
+		assertEquals(2, builds.get());
+	}
+
+	@Test
+	void conditionIsBuiltEachTimeWithoutTransaction() {
+		TransactionSynchronizationManager.clear();
+
+		memoizationKey.set("user");
+		assertNotSame(build(), build());
+		assertEquals(2, builds.get());
+	}
+
+	@Test
+	void conditionIsMemoizedPerKey() {
+		memoizationKey.set("user");
+		final Condition<?, ?> forUser = build();
+		assertSame(forUser, build());
+		assertEquals(1, builds.get());
+
+		memoizationKey.set("another user");
+		assertNotSame(forUser, build());
+		assertEquals(2, builds.get());
+
+		memoizationKey.set("user");
+		assertSame(forUser, build());
+		assertEquals(2, builds.get());
+	}
+
+	@Test
+	void conditionIsNotSharedBetweenTransactions() {
+		memoizationKey.set("user");
+		final Condition<?, ?> first = build();
+
+		afterEach();
+		beforeEach();
+
+		assertNotSame(first, build());
+		assertEquals(2, builds.get());
+	}
+
+}
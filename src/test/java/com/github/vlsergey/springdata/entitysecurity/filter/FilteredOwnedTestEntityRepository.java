@@ -0,0 +1,54 @@
+package com.github.vlsergey.springdata.entitysecurity.filter;
+
+import java.util.Collections;
+import java.util.Map;
+
+import javax.persistence.criteria.CommonAbstractCriteria;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import com.github.vlsergey.springdata.entitysecurity.ConditionWithQuerydsl;
+import com.github.vlsergey.springdata.entitysecurity.QueryType;
+import com.github.vlsergey.springdata.entitysecurity.SecuredWith;
+import com.github.vlsergey.springdata.entitysecurity.owned.OwnedTestEntity;
+import com.github.vlsergey.springdata.entitysecurity.owned.OwnedTestEntityBaseRepository;
+import com.github.vlsergey.springdata.entitysecurity.owned.OwnedTestEntitySecurityMixin;
+
+import lombok.NonNull;
+
+@SecuredWith(FilteredOwnedTestEntityRepository.FilteredOwnedTestEntitySecurityMixin.class)
+public interface FilteredOwnedTestEntityRepository extends OwnedTestEntityBaseRepository {
+
+	class FilteredOwnedTestEntitySecurityMixin extends OwnedTestEntitySecurityMixin {
+
+		@Override
+		protected ConditionWithQuerydsl<OwnedTestEntity, OwnedTestEntityBaseRepository> buildOwnerCondition(
+				final @NonNull String login) {
+			return new OwnerCondition(login) {
+
+				@Override
+				public Map<String, Object> getHibernateFilterParameters() {
+					return Collections.singletonMap("owner", login);
+				}
+
+				@Override
+				public Predicate toPredicate(@NonNull Root<OwnedTestEntity> root, @NonNull CommonAbstractCriteria cac,
+						@NonNull CriteriaBuilder cb, QueryType queryType) {
+					if (queryType == QueryType.SELECT) {
+						throw new AssertionError("SELECT queries shall be secured by Hibernate filter");
+					}
+					return super.toPredicate(root, cac, cb, queryType);
+				}
+
+			};
+		}
+
+		@Override
+		public String getHibernateFilterName() {
+			return OwnedTestEntity.OWNER_FILTER_NAME;
+		}
+
+	}
+
+}
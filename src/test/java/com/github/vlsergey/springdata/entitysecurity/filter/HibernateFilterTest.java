@@ -0,0 +1,149 @@
+package com.github.vlsergey.springdata.entitysecurity.filter;
+
+import static java.util.Collections.emptyList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.test.context.ContextConfiguration;
+
+import com.github.vlsergey.springdata.entitysecurity.TestQueryListener;
+import com.github.vlsergey.springdata.entitysecurity.owned.OwnedTestEntity;
+
+@DataJpaTest
+@ContextConfiguration(classes = TestConfiguration.class)
+class HibernateFilterTest {
+
+	@Autowired
+	private EntityManager entityManager;
+
+	private OwnedTestEntity myEntity;
+
+	private OwnedTestEntity notMyEntity;
+
+	@Autowired
+	private TestQueryListener queryListener;
+
+	@Autowired
+	private FilteredOwnedTestEntityRepository testRepository;
+
+	@AfterAll
+	static void clearSecurityContext() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@BeforeAll
+	static void initSecurityContext() {
+		SecurityContextHolder.setContext(new SecurityContextImpl());
+	}
+
+	@BeforeEach
+	void createEntities() {
+		setCurrentUser("root");
+		myEntity = saveAndFlush("me");
+		notMyEntity = saveAndFlush("other");
+		setCurrentUser("me");
+	}
+
+	private OwnedTestEntity saveAndFlush(String owner) {
+		OwnedTestEntity entity = new OwnedTestEntity();
+		entity.setOwner(owner);
+		entity.setValue(42);
+		return testRepository.saveAndFlush(entity);
+	}
+
+	private void setCurrentUser(String login) {
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(login, null, emptyList()));
+	}
+
+	@Test
+	void alwaysTrueConditionIsNotFiltered() {
+		// enables filter for current transaction
+		assertEquals(1, testRepository.findAll().size());
+
+		setCurrentUser("root");
+		assertEquals(2, testRepository.findAll().size());
+		assertEquals(2, testRepository.count());
+		assertEquals(2, testRepository.findByValue(42).size());
+		assertTrue(testRepository.existsById(notMyEntity.getId()));
+	}
+
+	@Test
+	void countIsFiltered() {
+		final List<String> queries = queryListener.listen(() -> assertEquals(1, testRepository.count()));
+		assertThat(queries, hasSize(1));
+		assertThat(queries.get(0), containsString("owner = ?"));
+	}
+
+	@Test
+	void deleteOfNotVisibleDetachedEntityIsForbidden() {
+		// enables filter for current transaction
+		assertEquals(1, testRepository.findAll().size());
+
+		testRepository.flush();
+		entityManager.detach(notMyEntity);
+		assertThrows(AccessDeniedException.class, () -> testRepository.delete(notMyEntity));
+	}
+
+	@Test
+	void derivedQueryIsFiltered() {
+		final List<OwnedTestEntity> found = testRepository.findByValue(42);
+		assertEquals(1, found.size());
+		assertEquals("me", found.get(0).getOwner());
+	}
+
+	@Test
+	void existsByIdIsFiltered() {
+		assertTrue(testRepository.existsById(myEntity.getId()));
+		assertFalse(testRepository.existsById(notMyEntity.getId()));
+	}
+
+	@Test
+	void findAllIsFiltered() {
+		final List<String> queries = queryListener.listen(() -> {
+			final List<OwnedTestEntity> found = testRepository.findAll();
+			assertEquals(1, found.size());
+			assertEquals("me", found.get(0).getOwner());
+		});
+		assertThat(queries, hasSize(1));
+		assertThat(queries.get(0), containsString("owner = ?"));
+	}
+
+	@Test
+	void findByIdIsFiltered() {
+		// entities are managed, make sure query is executed anyway
+		testRepository.flush();
+		assertTrue(testRepository.findById(myEntity.getId()).isPresent());
+		assertFalse(testRepository.findById(notMyEntity.getId()).isPresent());
+	}
+
+	@Test
+	void updateOfNotVisibleManagedEntityIsForbidden() {
+		// enables filter for current transaction
+		assertEquals(1, testRepository.findAll().size());
+
+		// existence check without condition must see entity despite the filter,
+		// otherwise it is treated as new one and only INSERT check is made
+		notMyEntity.setOwner("me");
+		assertThrows(AccessDeniedException.class, () -> testRepository.save(notMyEntity));
+	}
+
+}
@@ -0,0 +1,20 @@
+package com.github.vlsergey.springdata.entitysecurity.filter;
+
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import com.github.vlsergey.springdata.entitysecurity.QueryListeningConfiguration;
+import com.github.vlsergey.springdata.entitysecurity.SecuredJpaRepositoryFactoryBean;
+import com.github.vlsergey.springdata.entitysecurity.owned.OwnedTestEntity;
+
+@Configuration
+@EnableJpaRepositories(repositoryFactoryBeanClass = SecuredJpaRepositoryFactoryBean.class)
+@ComponentScan
+@EntityScan(basePackageClasses = OwnedTestEntity.class)
+@Import(QueryListeningConfiguration.class)
+public class TestConfiguration {
+
+}
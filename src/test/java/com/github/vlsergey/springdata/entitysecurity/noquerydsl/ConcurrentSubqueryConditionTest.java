@@ -0,0 +1,153 @@
+package com.github.vlsergey.springdata.entitysecurity.noquerydsl;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singleton;
+import static java.util.stream.Collectors.toSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.github.vlsergey.springdata.entitysecurity.TestQueryListener;
+
+/**
+ * Condition of {@link FileTestEntityRepository} creates subquery each time it
+ * is applied. Make sure concurrent executions of the same derived queries get
+ * results for own user only and that subqueries are not accumulated between
+ * executions (it would change SQL of the following executions).
+ */
+@DataJpaTest
+@ContextConfiguration(classes = TestConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ConcurrentSubqueryConditionTest {
+
+	private static final int FILES_PER_USER = 3;
+
+	private static final int ITERATIONS = 100;
+
+	private static final int THREADS = 16;
+
+	private static final String[] USERS = { "root", "user1", "user2", "user3" };
+
+	@Autowired
+	private FileTestEntityRepository fileRepository;
+
+	@Autowired
+	private GroupTestEntityRepository groupRepository;
+
+	@Autowired
+	private TestQueryListener queryListener;
+
+	@Autowired
+	private UserTestEntityRepository userRepository;
+
+	@AfterEach
+	void afterEach() {
+		setCurrentUser("root");
+		fileRepository.deleteAll();
+		userRepository.deleteAll();
+		groupRepository.deleteAll();
+		SecurityContextHolder.clearContext();
+	}
+
+	@BeforeEach
+	void beforeEach() {
+		setCurrentUser("root");
+		// user and group per login, each file is readable by owner only
+		for (int u = 1; u < USERS.length; u++) {
+			final GroupTestEntity group = new GroupTestEntity();
+			group.setGid((long) u);
+			groupRepository.save(group);
+
+			final UserTestEntity user = new UserTestEntity();
+			user.setUid((long) u);
+			user.setLogin(USERS[u]);
+			user.setGroups(singleton(group));
+			userRepository.save(user);
+
+			for (int f = 0; f < FILES_PER_USER; f++) {
+				final FileTestEntity file = new FileTestEntity();
+				file.setPath("/home/" + USERS[u] + "/" + f);
+				file.setPermissions("rw----");
+				file.setOwnerUser(user);
+				file.setOwnerGroup(group);
+				fileRepository.save(file);
+			}
+		}
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void eachThreadGetsOwnResult() throws Exception {
+		final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		final CountDownLatch start = new CountDownLatch(1);
+
+		final List<String> queries = queryListener.listen(() -> {
+			try {
+				final List<Future<?>> futures = new ArrayList<>();
+				for (int t = 0; t < THREADS; t++) {
+					final int userIndex = t % USERS.length;
+					final String user = USERS[userIndex];
+					final String otherUser = USERS[1 + userIndex % (USERS.length - 1)];
+					futures.add(executor.submit(() -> {
+						setCurrentUser(user);
+						try {
+							start.await();
+							for (int i = 0; i < ITERATIONS; i++) {
+								if (user.equals("root")) {
+									assertEquals(FILES_PER_USER, fileRepository.findByOwnerUserLogin(otherUser).size());
+									assertEquals(FILES_PER_USER, fileRepository.countByOwnerUserLogin(otherUser));
+								} else {
+									final List<FileTestEntity> found = fileRepository.findByOwnerUserLogin(user);
+									assertEquals(FILES_PER_USER, found.size());
+									assertEquals(singleton(user), found.stream()
+											.map(file -> file.getOwnerUser().getLogin()).collect(toSet()));
+									assertEquals(0, fileRepository.countByOwnerUserLogin(otherUser));
+								}
+							}
+							return null;
+						} finally {
+							SecurityContextHolder.clearContext();
+						}
+					}));
+				}
+
+				start.countDown();
+				for (Future<?> future : futures) {
+					future.get(1, TimeUnit.MINUTES);
+				}
+			} catch (Exception exc) {
+				throw new AssertionError(exc);
+			} finally {
+				executor.shutdownNow();
+			}
+		});
+
+		// select and count, each with and without security subquery (owners of
+		// found files are loaded by separate queries)
+		assertEquals(4, queries.stream().filter(sql -> sql.contains("file_test_entity")).collect(toSet()).size());
+	}
+
+	private static void setCurrentUser(String user) {
+		SecurityContextHolder.setContext(new SecurityContextImpl());
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(user, null, emptyList()));
+	}
+
+}
@@ -1,5 +1,7 @@
 package com.github.vlsergey.springdata.entitysecurity.noquerydsl;
 
+import java.util.List;
+
 import javax.persistence.criteria.CommonAbstractCriteria;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.Predicate;
@@ -21,6 +23,12 @@ import lombok.NonNull;
 @SecuredWith(FileTestEntitySecurityMixin.class)
 public interface FileTestEntityRepository extends JpaRepository<FileTestEntity, String> {
 
+	long countByOwnerUserLogin(String login);
+
+	List<FileTestEntity> findByOwnerUserLogin(String login);
+
+	List<FileTestEntity> findByOwnerUserLoginAndOwnerGroupGid(String login, Long gid);
+
 	class FileTestEntitySecurityMixin implements SecurityMixin<FileTestEntity, FileTestEntityRepository> {
 		@Override
 		public Condition<FileTestEntity, FileTestEntityRepository> buildCondition() {
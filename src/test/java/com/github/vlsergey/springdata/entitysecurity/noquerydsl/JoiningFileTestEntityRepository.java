@@ -0,0 +1,67 @@
+package com.github.vlsergey.springdata.entitysecurity.noquerydsl;
+
+import java.util.List;
+
+import javax.persistence.criteria.CommonAbstractCriteria;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.github.vlsergey.springdata.entitysecurity.Condition;
+import com.github.vlsergey.springdata.entitysecurity.QueryType;
+import com.github.vlsergey.springdata.entitysecurity.SecuredWith;
+import com.github.vlsergey.springdata.entitysecurity.SecurityMixin;
+import com.github.vlsergey.springdata.entitysecurity.StandardConditions;
+import com.github.vlsergey.springdata.entitysecurity.noquerydsl.JoiningFileTestEntityRepository.JoiningFileTestEntitySecurityMixin;
+
+import lombok.NonNull;
+
+/**
+ * Repository which condition joins owner of file to the main query each time it
+ * is applied
+ */
+@SecuredWith(JoiningFileTestEntitySecurityMixin.class)
+public interface JoiningFileTestEntityRepository extends JpaRepository<FileTestEntity, String> {
+
+	List<FileTestEntity> findByPermissions(String permissions);
+
+	class JoiningFileTestEntitySecurityMixin implements SecurityMixin<FileTestEntity, JoiningFileTestEntityRepository> {
+		@Override
+		public Condition<FileTestEntity, JoiningFileTestEntityRepository> buildCondition() {
+			final String login = SecurityContextHolder.getContext().getAuthentication().getName();
+
+			if (login.equals("root")) {
+				return StandardConditions.alwaysAllowCondition();
+			}
+			if (login == null || login.isEmpty()) {
+				return StandardConditions.deny(() -> new RuntimeException("No rights exception"));
+			}
+
+			return new Condition<FileTestEntity, JoiningFileTestEntityRepository>() {
+
+				@Override
+				public void checkEntity(@NonNull JoiningFileTestEntityRepository repository,
+						@NonNull FileTestEntity entity, @NonNull QueryType queryType) {
+					throw new UnsupportedOperationException("not used in test cases");
+				}
+
+				@Override
+				public Predicate toPredicate(@NonNull Root<FileTestEntity> root, @NonNull CommonAbstractCriteria query,
+						@NonNull CriteriaBuilder cb, QueryType queryType) {
+					return cb.equal(root.join("ownerUser").get("login"), login);
+				}
+
+			};
+		}
+
+		@Override
+		public void onForbiddenOperation(FileTestEntity entity, QueryType queryType) {
+			throw new UnsupportedOperationException("not used in test cases");
+		}
+
+	}
+
+}
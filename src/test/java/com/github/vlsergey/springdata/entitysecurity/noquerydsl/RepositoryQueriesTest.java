@@ -3,6 +3,7 @@ package com.github.vlsergey.springdata.entitysecurity.noquerydsl;
 import static java.util.Collections.emptyList;
 import static org.hamcrest.MatcherAssert.assertThat;
 
+import java.util.HashSet;
 import java.util.List;
 
 import org.hamcrest.Matchers;
@@ -25,6 +26,9 @@ class RepositoryQueriesTest {
 	@Autowired
 	private FileTestEntityRepository fileRepository;
 
+	@Autowired
+	private JoiningFileTestEntityRepository joiningRepository;
+
 	@Autowired
 	private TestQueryListener queryListener;
 
@@ -38,6 +42,11 @@ class RepositoryQueriesTest {
 		SecurityContextHolder.setContext(new SecurityContextImpl());
 	}
 
+	private static int countJoinsOfMainQuery(String sql) {
+		final String fromClause = sql.substring(0, sql.indexOf(" where "));
+		return fromClause.split(" join ", -1).length - 1;
+	}
+
 	private void assertWhenDoThenQueryMatchesPattern(Runnable runnable, String pattern) {
 		final List<String> queries = queryListener.listen(runnable);
 		assertThat(queries, Matchers.hasSize(1));
@@ -58,6 +67,73 @@ class RepositoryQueriesTest {
 				+ "or substring\\(.*permissions, 6, 7\\)=\\?\\)" + "\\)$");
 	}
 
+	@Test
+	void testCountByJoinedProperty() {
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken("testUser", null, emptyList()));
+
+		final String query = queryListener.assertQueries(() -> fileRepository.countByOwnerUserLogin("testUser"))
+				.selects(1).total(1).getQueries().get(0);
+		assertThat(query, Matchers.matchesPattern("^select count\\(.*\\) as .* from file_test_entity .*"
+				+ "join user_test_entity .* where .*login=\\? and \\(exists \\(select 1 from user_test_entity .*\\)\\)$"));
+		assertThat(countJoinsOfMainQuery(query), Matchers.equalTo(1));
+	}
+
+	@Test
+	void testFindByJoinedProperty() {
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken("testUser", null, emptyList()));
+
+		final String query = queryListener.assertQueries(() -> fileRepository.findByOwnerUserLogin("testUser"))
+				.selects(1).total(1).getQueries().get(0);
+		assertThat(query, Matchers.matchesPattern("^select .* from file_test_entity .*"
+				+ "join user_test_entity .* where .*login=\\? and \\(exists \\(select 1 from user_test_entity .*\\)\\)$"));
+		assertThat(countJoinsOfMainQuery(query), Matchers.equalTo(1));
+	}
+
+	@Test
+	void testFindByMultipleJoinedProperties() {
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken("testUser", null, emptyList()));
+
+		final String query = queryListener
+				.assertQueries(() -> fileRepository.findByOwnerUserLoginAndOwnerGroupGid("testUser", 1L)).selects(1)
+				.total(1).getQueries().get(0);
+		assertThat(query, Matchers.matchesPattern("^select .* from file_test_entity .*join user_test_entity .*"
+				+ "join group_test_entity .* where .*login=\\? and .*gid=\\?\\)? and "
+				+ "\\(exists \\(select 1 from user_test_entity .*\\)\\)$"));
+		// joins of ownerUser and ownerGroup only, security condition shall not add
+		// joins to main query
+		assertThat(countJoinsOfMainQuery(query), Matchers.equalTo(2));
+	}
+
+	@Test
+	void testJoiningConditionIsAppliedToEachExecutionOnce() {
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken("testUser", null, emptyList()));
+
+		final List<String> queries = queryListener.listen(() -> {
+			for (int i = 0; i < 3; i++) {
+				joiningRepository.findByPermissions("rw-r--r--");
+			}
+		});
+		assertThat(queries, Matchers.hasSize(3));
+		// joins made by condition are not accumulated, SQL does not grow
+		assertThat(new HashSet<>(queries), Matchers.hasSize(1));
+		assertThat(queries.get(0), Matchers.matchesPattern("^select .* from file_test_entity .*"
+				+ "join user_test_entity .* where .*permissions=\\?.* and .*login=\\?\\)?$"));
+		assertThat(countJoinsOfMainQuery(queries.get(0)), Matchers.equalTo(1));
+	}
+
+	@Test
+	void testFindByJoinedPropertyUnderRoot() {
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("root", null, emptyList()));
+
+		final List<String> queries = queryListener.listen(() -> fileRepository.findByOwnerUserLogin("root"));
+		assertThat(queries, Matchers.hasSize(1));
+		assertThat(queries.get(0), Matchers.not(Matchers.containsString("exists")));
+	}
+
 	@Test
 	void testFindAllUnderRoot() {
 		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("root", null, emptyList()));
@@ -0,0 +1,8 @@
+package com.github.vlsergey.springdata.entitysecurity.owned;
+
+import com.github.vlsergey.springdata.entitysecurity.SecuredWith;
+
+@SecuredWith(value = OwnedTestEntitySecurityMixin.class, idsBatchSize = 2, findAllByIdKeepsOrder = true)
+public interface BatchedOwnedTestEntityRepository extends OwnedTestEntityBaseRepository {
+
+}
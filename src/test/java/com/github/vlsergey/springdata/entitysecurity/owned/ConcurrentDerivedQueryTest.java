@@ -0,0 +1,179 @@
+package com.github.vlsergey.springdata.entitysecurity.owned;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singleton;
+import static java.util.stream.Collectors.toSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.github.vlsergey.springdata.entitysecurity.TestQueryListener;
+import com.github.vlsergey.springdata.entitysecurity.owned.RendezvousOwnedTestEntityRepository.RendezvousOwnedTestEntitySecurityMixin;
+
+/**
+ * Derived query {@link OwnedTestEntityRepository#findByValue(int)} is executed
+ * by many threads at once. Make sure each thread gets result for own user only,
+ * restriction of one execution is not seen by others, and threads do not wait
+ * for each other while restriction is built.
+ */
+@DataJpaTest
+@ContextConfiguration(classes = TestConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ConcurrentDerivedQueryTest {
+
+	private static final int ITERATIONS = 200;
+
+	private static final int RENDEZVOUS_ITERATIONS = 20;
+
+	private static final int THREADS = 16;
+
+	private static final String[] USERS = { "root", "user1", "user2", "user3" };
+
+	@Autowired
+	private TestQueryListener queryListener;
+
+	@Autowired
+	private RendezvousOwnedTestEntityRepository rendezvousRepository;
+
+	@Autowired
+	private OwnedTestEntityRepository testRepository;
+
+	@AfterEach
+	void afterEach() {
+		setCurrentUser("root");
+		testRepository.deleteAll();
+		SecurityContextHolder.clearContext();
+	}
+
+	@BeforeEach
+	void beforeEach() {
+		for (String user : USERS) {
+			setCurrentUser(user);
+			for (int i = 0; i < 3; i++) {
+				OwnedTestEntity entity = new OwnedTestEntity();
+				entity.setOwner(user);
+				entity.setValue(42);
+				testRepository.save(entity);
+			}
+		}
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void eachThreadGetsOwnResult() throws Exception {
+		final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		final CountDownLatch start = new CountDownLatch(1);
+
+		final List<String> queries = queryListener.listen(() -> {
+			try {
+				final List<Future<?>> futures = new ArrayList<>();
+				for (int t = 0; t < THREADS; t++) {
+					final String user = USERS[t % USERS.length];
+					futures.add(executor.submit(() -> {
+						setCurrentUser(user);
+						try {
+							start.await();
+							for (int i = 0; i < ITERATIONS; i++) {
+								final List<OwnedTestEntity> found = testRepository.findByValue(42);
+								if (user.equals("root")) {
+									assertEquals(3 * USERS.length, found.size());
+								} else {
+									assertEquals(3, found.size());
+									assertEquals(singleton(user),
+											found.stream().map(OwnedTestEntity::getOwner).collect(toSet()));
+								}
+							}
+							return null;
+						} finally {
+							SecurityContextHolder.clearContext();
+						}
+					}));
+				}
+
+				start.countDown();
+				for (Future<?> future : futures) {
+					future.get(1, TimeUnit.MINUTES);
+				}
+			} catch (Exception exc) {
+				throw new AssertionError(exc);
+			} finally {
+				executor.shutdownNow();
+			}
+		});
+
+		assertEquals(THREADS * ITERATIONS, queries.size());
+		// one form for root user (without security restriction) and one for others
+		assertEquals(2, new HashSet<>(queries).size());
+	}
+
+	@Test
+	void threadsDoNotWaitForEachOther() throws Exception {
+		final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		// predicate of each execution is built only when all threads are building
+		// theirs, i.e. executions time out if predicate building is serialized
+		RendezvousOwnedTestEntitySecurityMixin.BARRIER.set(new CyclicBarrier(THREADS));
+
+		final List<String> queries = queryListener.listen(() -> {
+			try {
+				final List<Future<?>> futures = new ArrayList<>();
+				for (int t = 0; t < THREADS; t++) {
+					// root user has no predicate to build
+					final String user = USERS[1 + t % (USERS.length - 1)];
+					futures.add(executor.submit(() -> {
+						setCurrentUser(user);
+						try {
+							for (int i = 0; i < RENDEZVOUS_ITERATIONS; i++) {
+								final List<OwnedTestEntity> found = rendezvousRepository.findByValue(42);
+								assertEquals(3, found.size());
+								assertEquals(singleton(user),
+										found.stream().map(OwnedTestEntity::getOwner).collect(toSet()));
+							}
+							return null;
+						} finally {
+							SecurityContextHolder.clearContext();
+						}
+					}));
+				}
+
+				for (Future<?> future : futures) {
+					future.get(1, TimeUnit.MINUTES);
+				}
+			} catch (Exception exc) {
+				throw new AssertionError(exc);
+			} finally {
+				RendezvousOwnedTestEntitySecurityMixin.BARRIER.set(null);
+				executor.shutdownNow();
+			}
+		});
+
+		assertEquals(THREADS * RENDEZVOUS_ITERATIONS, queries.size());
+		// the same predicate of the same form is produced by each execution
+		assertEquals(1, new HashSet<>(queries).size());
+	}
+
+	private static void setCurrentUser(String user) {
+		SecurityContextHolder.setContext(new SecurityContextImpl());
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(user, null, emptyList()));
+	}
+
+}
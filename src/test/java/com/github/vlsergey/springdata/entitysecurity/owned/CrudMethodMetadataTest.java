@@ -0,0 +1,84 @@
+package com.github.vlsergey.springdata.entitysecurity.owned;
+
+import static java.util.Collections.emptyList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.test.context.ContextConfiguration;
+
+import com.github.vlsergey.springdata.entitysecurity.TestQueryListener;
+
+/**
+ * Checks that lock mode and query hints of redeclared repository method reach
+ * the single query of secured <tt>findById()</tt>. Query hint is made visible
+ * in SQL as a comment.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.use_sql_comments=true")
+@ContextConfiguration(classes = TestConfiguration.class)
+class CrudMethodMetadataTest {
+
+	private static final String QUERY_PATTERN = "^/\\* " + LockingOwnedTestEntityRepository.QUERY_COMMENT
+			+ " \\*/ select .* from owned_test_entity .* where .*id=\\? and .*owner=\\? for update$";
+
+	@Autowired
+	private TestQueryListener queryListener;
+
+	@Autowired
+	private LockingOwnedTestEntityRepository testRepository;
+
+	@AfterAll
+	static void clearSecurityContext() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@BeforeAll
+	static void initSecurityContext() {
+		SecurityContextHolder.setContext(new SecurityContextImpl());
+	}
+
+	@BeforeEach
+	void setTestUser() {
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken("testUser", null, emptyList()));
+	}
+
+	@Test
+	void findByIdHasLockModeAndQueryHints() {
+		final OwnedTestEntity entity = new OwnedTestEntity();
+		entity.setOwner("testUser");
+		final OwnedTestEntity saved = testRepository.saveAndFlush(entity);
+
+		final List<String> queries = queryListener.listen(() -> {
+			// managed instance from persistence context is expected
+			assertSame(saved, testRepository.findById(saved.getId()).get());
+		});
+
+		assertThat(queries, hasSize(1));
+		assertThat(queries.get(0), matchesPattern(QUERY_PATTERN));
+	}
+
+	@Test
+	void findByIdOfUnknownIdHasLockModeAndQueryHints() {
+		final List<String> queries = queryListener
+				.listen(() -> assertFalse(testRepository.findById(UUID.randomUUID()).isPresent()));
+
+		assertThat(queries, hasSize(1));
+		assertThat(queries.get(0), matchesPattern(QUERY_PATTERN));
+	}
+
+}
@@ -0,0 +1,43 @@
+package com.github.vlsergey.springdata.entitysecurity.owned;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.dao.QueryTimeoutException;
+
+import com.github.vlsergey.springdata.entitysecurity.ConditionWithQuerydsl;
+import com.github.vlsergey.springdata.entitysecurity.QueryType;
+import com.github.vlsergey.springdata.entitysecurity.SecuredWith;
+
+import lombok.NonNull;
+
+@SecuredWith(FlakyOwnedTestEntityRepository.FlakyOwnedTestEntitySecurityMixin.class)
+public interface FlakyOwnedTestEntityRepository extends OwnedTestEntityBaseRepository {
+
+	/**
+	 * Owner-based mixin, which entity checks fail with timeout given number of
+	 * times before working as usual
+	 */
+	class FlakyOwnedTestEntitySecurityMixin extends OwnedTestEntitySecurityMixin {
+
+		static final AtomicInteger FAILURES_LEFT = new AtomicInteger();
+
+		@Override
+		protected ConditionWithQuerydsl<OwnedTestEntity, OwnedTestEntityBaseRepository> buildOwnerCondition(
+				final @NonNull String login) {
+			return new OwnerCondition(login) {
+
+				@Override
+				public void checkEntity(@NonNull OwnedTestEntityBaseRepository repository,
+						@NonNull OwnedTestEntity entity, @NonNull QueryType queryType) {
+					if (FAILURES_LEFT.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+						throw new QueryTimeoutException("Check query timed out");
+					}
+					super.checkEntity(repository, entity, queryType);
+				}
+
+			};
+		}
+
+	}
+
+}
@@ -0,0 +1,92 @@
+package com.github.vlsergey.springdata.entitysecurity.owned;
+
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.test.context.ContextConfiguration;
+
+import com.github.vlsergey.springdata.entitysecurity.TestQueryListener;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+
+/**
+ * Security check queries made by <tt>save()</tt> must not flush pending
+ * changes, otherwise each update is executed as separate statement instead of
+ * JDBC batch.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.jdbc.batch_size=10")
+@ContextConfiguration(classes = TestConfiguration.class)
+class JdbcBatchingTest {
+
+	private static final int ENTITIES = 5;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private TestQueryListener queryListener;
+
+	@Autowired
+	private OwnedTestEntityRepository testRepository;
+
+	@AfterAll
+	static void clearSecurityContext() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@BeforeAll
+	static void initSecurityContext() {
+		SecurityContextHolder.setContext(new SecurityContextImpl());
+	}
+
+	@Test
+	void saveOfManagedEntitiesKeepsUpdatesBatched() {
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken("testUser", null, emptyList()));
+
+		final List<UUID> ids = IntStream.range(0, ENTITIES).mapToObj(i -> {
+			OwnedTestEntity entity = new OwnedTestEntity();
+			entity.setOwner("testUser");
+			entity.setValue(i);
+			return testRepository.save(entity).getId();
+		}).collect(toList());
+		testRepository.flush();
+		entityManager.clear();
+
+		final List<OwnedTestEntity> entities = testRepository.findAllById(ids);
+		assertThat(entities, hasSize(ENTITIES));
+
+		final List<ExecutionInfo> checks = queryListener.listenExecutions(() -> entities.forEach(entity -> {
+			entity.setValue(entity.getValue() + 100);
+			testRepository.save(entity);
+		}));
+		// only security check queries, pending updates are not flushed by them
+		assertEquals(ENTITIES, checks.size());
+		checks.forEach(execution -> assertFalse(execution.isBatch()));
+
+		final List<ExecutionInfo> flush = queryListener.listenExecutions(testRepository::flush);
+		assertThat(flush, hasSize(1));
+		assertTrue(flush.get(0).isBatch());
+		assertEquals(ENTITIES, flush.get(0).getBatchSize());
+	}
+
+}
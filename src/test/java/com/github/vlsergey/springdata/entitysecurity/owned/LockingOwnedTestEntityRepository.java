@@ -0,0 +1,24 @@
+package com.github.vlsergey.springdata.entitysecurity.owned;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import com.github.vlsergey.springdata.entitysecurity.SecuredWith;
+
+@SecuredWith(OwnedTestEntitySecurityMixin.class)
+public interface LockingOwnedTestEntityRepository extends OwnedTestEntityBaseRepository {
+
+	String QUERY_COMMENT = "locking findById";
+
+	@Override
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@QueryHints(@QueryHint(name = "org.hibernate.comment", value = QUERY_COMMENT))
+	Optional<OwnedTestEntity> findById(UUID id);
+
+}
@@ -2,14 +2,26 @@ package com.github.vlsergey.springdata.entitysecurity.owned;
 
 import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.emptyCollectionOf;
+import static org.hamcrest.Matchers.everyItem;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.matchesPattern;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
 
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.AfterAll;
@@ -17,6 +29,9 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.authentication.TestingAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.context.SecurityContextImpl;
@@ -30,6 +45,12 @@ class OwnedEntityTest {
 
 	private static final String USERNAME_ROOT = "root";
 
+	@Autowired
+	private BatchedOwnedTestEntityRepository batchedRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
 	@Autowired
 	private TestQueryListener queryListener;
 
@@ -69,6 +90,121 @@ class OwnedEntityTest {
 				emptyCollectionOf(OwnedTestEntity.class));
 	}
 
+	@Test
+	void findAllByIdsQueriesInBatchesAndKeepsOrder() {
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken(USERNAME_ROOT, null, emptyList()));
+
+		final List<UUID> ids = Stream.of("testUser", "otherUser", "testUser", "testUser").map(owner -> {
+			OwnedTestEntity entity = new OwnedTestEntity();
+			entity.setOwner(owner);
+			entity.setValue(42);
+			return testRepository.save(entity).getId();
+		}).collect(toList());
+		testRepository.flush();
+		Collections.reverse(ids);
+
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken("testUser", null, emptyList()));
+
+		final List<OwnedTestEntity> found = new ArrayList<>();
+		final List<String> queries = queryListener.listen(() -> found.addAll(batchedRepository.findAllById(ids)));
+
+		// 4 IDs with idsBatchSize = 2
+		assertThat(queries, hasSize(2));
+		assertThat(queries, everyItem(
+				matchesPattern("^select .* from owned_test_entity .* where .*id in \\(.*\\) and .*owner=\\?$")));
+		assertThat(found.stream().map(OwnedTestEntity::getId).collect(toList()),
+				contains(ids.get(0), ids.get(1), ids.get(3)));
+	}
+
+	@Test
+	void findAllByIdsQueriesAllIdsAtOnceByDefault() {
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken(USERNAME_ROOT, null, emptyList()));
+		final List<UUID> ids = saveAndFlushOwnedBy("testUser", "otherUser", "testUser").stream()
+				.map(OwnedTestEntity::getId).collect(toList());
+
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken("testUser", null, emptyList()));
+
+		final List<OwnedTestEntity> found = new ArrayList<>();
+		assertWhenDoThenQueryMatchesPattern(() -> found.addAll(testRepository.findAllById(ids)),
+				"^select .* from owned_test_entity .* where .*id in \\(.*\\) and .*owner=\\?$");
+		assertThat(found, hasSize(2));
+	}
+
+	@Test
+	void saveAllOfFlushedEntitiesChecksUpdateWithSingleQuery() {
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken("testUser", null, emptyList()));
+
+		final List<OwnedTestEntity> entities = Stream.of(1, 2).map(value -> {
+			OwnedTestEntity entity = new OwnedTestEntity();
+			entity.setOwner("testUser");
+			entity.setValue(value);
+			return entity;
+		}).collect(toList());
+		testRepository.saveAllAndFlush(entities);
+
+		final List<String> queries = queryListener.listen(() -> testRepository.saveAll(entities));
+
+		assertThat(queries, hasSize(1));
+		assertThat(queries.get(0), matchesPattern("^select .* from owned_test_entity .* where .*id in \\(.*\\) "
+				+ "and not .*exists \\(select 1 from owned_test_entity .* where .*id=.*id and .*owner=\\?\\).*$"));
+	}
+
+	@Test
+	void querydslMethodsDoNotQueryDatabaseIfAlwaysFalse() {
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("", null, emptyList()));
+
+		final QOwnedTestEntity entity = QOwnedTestEntity.ownedTestEntity;
+		final List<String> queries = queryListener.listen(() -> {
+			assertEquals(0, testRepository.count(entity.value.eq(42)));
+			assertFalse(testRepository.exists(entity.value.eq(42)));
+			assertFalse(testRepository.findAll(entity.value.eq(42)).iterator().hasNext());
+			assertFalse(testRepository.findAll(entity.value.eq(42), Sort.by("value")).iterator().hasNext());
+			assertFalse(testRepository.findAll(entity.value.eq(42), entity.value.asc()).iterator().hasNext());
+			assertFalse(testRepository.findAll(entity.value.asc()).iterator().hasNext());
+			assertTrue(testRepository.findAll(entity.value.eq(42), PageRequest.of(0, 10)).isEmpty());
+			assertFalse(testRepository.findOne(entity.value.eq(42)).isPresent());
+		});
+		assertThat(queries, emptyCollectionOf(String.class));
+	}
+
+	@Test
+	void querydslFindAllHasOwnerCondition() {
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken(USERNAME_ROOT, null, emptyList()));
+
+		Stream.of("testUser", "otherUser").forEach(owner -> {
+			OwnedTestEntity entity = new OwnedTestEntity();
+			entity.setOwner(owner);
+			entity.setValue(42);
+			testRepository.save(entity);
+		});
+		testRepository.flush();
+
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken("testUser", null, emptyList()));
+
+		final List<OwnedTestEntity> found = new ArrayList<>();
+		assertWhenDoThenQueryMatchesPattern(
+				() -> testRepository.findAll(QOwnedTestEntity.ownedTestEntity.value.eq(42)).forEach(found::add),
+				"^select .* from owned_test_entity .* where .*value=\\? and .*owner=\\?$");
+		assertThat(found.stream().map(OwnedTestEntity::getOwner).collect(toList()), contains("testUser"));
+	}
+
+	@Test
+	void querydslFindAllUnderRootHasNoSecurityCondition() {
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken(USERNAME_ROOT, null, emptyList()));
+
+		assertWhenDoThenQueryMatchesPattern(
+				() -> testRepository.findAll(QOwnedTestEntity.ownedTestEntity.value.eq(42)).iterator().hasNext(),
+				"^select .* from owned_test_entity .* where .*value=\\?$");
+	}
+
 	@Test
 	void testDoubleSaveWithoutFlash() {
 		SecurityContextHolder.getContext()
@@ -139,6 +275,35 @@ class OwnedEntityTest {
 		assertWhenDoThenQueryMatchesPattern(testRepository::findAll, "^select .* from owned_test_entity [a-z0-9_]+$");
 	}
 
+	@Test
+	void testFindByIdIsSingleQuery() {
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken("testUser", null, emptyList()));
+
+		OwnedTestEntity test = new OwnedTestEntity();
+		test.setOwner("testUser");
+		test.setValue(42);
+		final OwnedTestEntity saved = testRepository.saveAndFlush(test);
+
+		List<String> queries = queryListener.listen(() -> {
+			// managed instance from persistence context is expected
+			assertSame(saved, testRepository.findById(saved.getId()).get());
+		});
+
+		assertThat(queries, hasSize(1));
+		assertThat(queries.get(0),
+				matchesPattern("^select .* from owned_test_entity .* where .*id=\\? and .*owner=\\?$"));
+	}
+
+	@Test
+	void testFindByIdOfUnknownIdIsSingleQuery() {
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken("testUser", null, emptyList()));
+
+		assertWhenDoThenQueryMatchesPattern(() -> assertFalse(testRepository.findById(UUID.randomUUID()).isPresent()),
+				"^select .* from owned_test_entity .* where .*id=\\? and .*owner=\\?$");
+	}
+
 	@Test
 	void testFindByValue() {
 		SecurityContextHolder.getContext()
@@ -148,4 +313,140 @@ class OwnedEntityTest {
 				"^select .* from owned_test_entity .* where .*value=\\? and .*owner=\\?$");
 	}
 
+	private List<OwnedTestEntity> saveAndFlushOwnedBy(String... owners) {
+		final List<OwnedTestEntity> entities = Stream.of(owners).map(owner -> {
+			OwnedTestEntity entity = new OwnedTestEntity();
+			entity.setOwner(owner);
+			entity.setValue(42);
+			return testRepository.save(entity);
+		}).collect(toList());
+		testRepository.flush();
+		return entities;
+	}
+
+	@Test
+	void testStreamAll() {
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken(USERNAME_ROOT, null, emptyList()));
+		saveAndFlushOwnedBy("testUser", "otherUser", "testUser");
+
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken("testUser", null, emptyList()));
+
+		final List<OwnedTestEntity> found = new ArrayList<>();
+		assertWhenDoThenQueryMatchesPattern(() -> {
+			try (Stream<OwnedTestEntity> stream = testRepository.streamAll(null, 1)) {
+				stream.forEach(found::add);
+			}
+		}, "^select .* from owned_test_entity .* where .*owner=\\?$");
+		assertThat(found, hasSize(2));
+		assertThat(found, everyItem(Matchers.hasProperty("owner", Matchers.equalTo("testUser"))));
+	}
+
+	@Test
+	void testStreamAllDetachesEntities() {
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken("testUser", null, emptyList()));
+		saveAndFlushOwnedBy("testUser", "testUser");
+
+		final List<Boolean> managedWhenProcessed = new ArrayList<>();
+		final List<OwnedTestEntity> found = new ArrayList<>();
+		try (Stream<OwnedTestEntity> stream = testRepository.streamAll(null, Sort.by("value"), 10, true)) {
+			stream.forEach(entity -> {
+				managedWhenProcessed.add(entityManager.contains(entity));
+				found.add(entity);
+			});
+		}
+
+		assertThat(managedWhenProcessed, contains(true, true));
+		assertThat(found, hasSize(2));
+		assertThat(found.stream().map(entityManager::contains).collect(toList()), contains(false, false));
+	}
+
+	@Test
+	void testStreamAllIfAlwaysFalseDoesNotQueryDatabase() {
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("", null, emptyList()));
+
+		final List<String> queries = queryListener.listen(() -> {
+			try (Stream<OwnedTestEntity> stream = testRepository.streamAll(null, 1)) {
+				assertEquals(0, stream.count());
+			}
+		});
+		assertThat(queries, emptyCollectionOf(String.class));
+	}
+
+	@Test
+	void testStreamByValue() {
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken("testUser", null, emptyList()));
+
+		assertWhenDoThenQueryMatchesPattern(() -> {
+			try (Stream<OwnedTestEntity> stream = testRepository.streamByValue(42)) {
+				stream.forEach(entity -> assertEquals("testUser", entity.getOwner()));
+			}
+		}, "^select .* from owned_test_entity .* where .*value=\\? and .*owner=\\?$");
+	}
+
+	@Test
+	void testFindAllAfter() {
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken(USERNAME_ROOT, null, emptyList()));
+		Stream.of(1, 2, 2, 2, 3).forEach(value -> {
+			Stream.of("testUser", "otherUser").forEach(owner -> {
+				OwnedTestEntity entity = new OwnedTestEntity();
+				entity.setOwner(owner);
+				entity.setValue(value);
+				testRepository.save(entity);
+			});
+		});
+		testRepository.flush();
+
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken("testUser", null, emptyList()));
+
+		final List<OwnedTestEntity> found = new ArrayList<>();
+		final List<Boolean> hasNext = new ArrayList<>();
+		final List<String> queries = queryListener.listen(() -> {
+			OwnedTestEntity last = null;
+			do {
+				final Slice<OwnedTestEntity> slice = testRepository.findAllAfter(null, Sort.by("value"), last, 2);
+				found.addAll(slice.getContent());
+				hasNext.add(slice.hasNext());
+				last = slice.hasNext() ? slice.getContent().get(slice.getNumberOfElements() - 1) : null;
+			} while (last != null);
+		});
+
+		assertThat(hasNext, contains(true, true, false));
+		assertThat(queries, hasSize(3));
+		assertThat(queries, everyItem(matchesPattern("^select .* from owned_test_entity .* where .*owner=\\?.*$")));
+		assertThat(queries, everyItem(Matchers.not(Matchers.containsString("count("))));
+
+		assertThat(found.stream().map(OwnedTestEntity::getValue).collect(toList()), contains(1, 2, 2, 2, 3));
+		assertThat(found, everyItem(Matchers.hasProperty("owner", Matchers.equalTo("testUser"))));
+		assertThat(found.stream().map(OwnedTestEntity::getId).distinct().count(), Matchers.equalTo(5L));
+	}
+
+	@Test
+	void testFindAllAfterDescending() {
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken("testUser", null, emptyList()));
+		Stream.of(1, 2, 3).forEach(value -> {
+			OwnedTestEntity entity = new OwnedTestEntity();
+			entity.setOwner("testUser");
+			entity.setValue(value);
+			testRepository.save(entity);
+		});
+		testRepository.flush();
+
+		final Slice<OwnedTestEntity> first = testRepository.findAllAfter(null, Sort.by("value").descending(), null,
+				2);
+		assertThat(first.getContent().stream().map(OwnedTestEntity::getValue).collect(toList()), contains(3, 2));
+		assertTrue(first.hasNext());
+
+		final Slice<OwnedTestEntity> second = testRepository.findAllAfter(null, Sort.by("value").descending(),
+				first.getContent().get(1), 2);
+		assertThat(second.getContent().stream().map(OwnedTestEntity::getValue).collect(toList()), contains(1));
+		assertFalse(second.hasNext());
+	}
+
 }
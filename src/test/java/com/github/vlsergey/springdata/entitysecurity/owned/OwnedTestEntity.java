@@ -7,16 +7,27 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 
+import org.hibernate.annotations.Filter;
+import org.hibernate.annotations.FilterDef;
+import org.hibernate.annotations.ParamDef;
+
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
 
 @Entity
+@FilterDef(name = OwnedTestEntity.OWNER_FILTER_NAME, parameters = @ParamDef(name = "owner", type = "string"))
+@Filter(name = OwnedTestEntity.OWNER_FILTER_NAME, condition = "owner = :owner")
 @Getter
 @Setter
 @ToString
 public class OwnedTestEntity {
 
+	/**
+	 * Hibernate filter, disabled unless repository mixin enables it
+	 */
+	public static final String OWNER_FILTER_NAME = "ownedTestEntityOwner";
+
 	@Id
 	@GeneratedValue(strategy = GenerationType.AUTO)
 	private UUID id;
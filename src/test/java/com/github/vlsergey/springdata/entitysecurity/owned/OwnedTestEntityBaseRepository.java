@@ -0,0 +1,31 @@
+package com.github.vlsergey.springdata.entitysecurity.owned;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.querydsl.QuerydslPredicateExecutor;
+import org.springframework.data.repository.NoRepositoryBean;
+
+import com.github.vlsergey.springdata.entitysecurity.CountingBatchDeleteExecutor;
+import com.github.vlsergey.springdata.entitysecurity.KeysetPaginationExecutor;
+import com.github.vlsergey.springdata.entitysecurity.StreamingExecutor;
+
+/**
+ * Common interface of repositories of {@link OwnedTestEntity} secured with
+ * {@link OwnedTestEntitySecurityMixin} and different <tt>@SecuredWith</tt>
+ * options
+ */
+@NoRepositoryBean
+public interface OwnedTestEntityBaseRepository extends JpaRepository<OwnedTestEntity, UUID>,
+		JpaSpecificationExecutor<OwnedTestEntity>, QuerydslPredicateExecutor<OwnedTestEntity>,
+		CountingBatchDeleteExecutor<OwnedTestEntity, UUID>, KeysetPaginationExecutor<OwnedTestEntity>,
+		StreamingExecutor<OwnedTestEntity> {
+
+	List<OwnedTestEntity> findByValue(int value);
+
+	Stream<OwnedTestEntity> streamByValue(int value);
+
+}
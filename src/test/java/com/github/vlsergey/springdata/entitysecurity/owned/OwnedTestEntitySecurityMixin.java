@@ -0,0 +1,93 @@
+package com.github.vlsergey.springdata.entitysecurity.owned;
+
+import javax.persistence.criteria.CommonAbstractCriteria;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.github.vlsergey.springdata.entitysecurity.ConditionWithQuerydsl;
+import com.github.vlsergey.springdata.entitysecurity.QueryType;
+import com.github.vlsergey.springdata.entitysecurity.SecurityMixinWithQuerydsl;
+import com.github.vlsergey.springdata.entitysecurity.StandardConditions;
+import com.google.common.base.Objects;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Allows everything to <tt>root</tt>, nothing to user with empty name, and
+ * only own entities to anyone else
+ */
+public class OwnedTestEntitySecurityMixin
+		implements SecurityMixinWithQuerydsl<OwnedTestEntity, OwnedTestEntityBaseRepository> {
+
+	@Override
+	public ConditionWithQuerydsl<OwnedTestEntity, OwnedTestEntityBaseRepository> buildCondition() {
+		final String login = SecurityContextHolder.getContext().getAuthentication().getName();
+
+		if (login.equals("root")) {
+			return StandardConditions.alwaysAllowConditionWithQuerydsl();
+		}
+		if (login == null || login.isEmpty()) {
+			return StandardConditions.denyWithQuerydsl(() -> new RuntimeException("No rights exception"));
+		}
+
+		return buildOwnerCondition(login);
+	}
+
+	/**
+	 * Allows only entities owned by current user. Override to customize
+	 * condition of regular users in scenario-specific mixins.
+	 */
+	protected ConditionWithQuerydsl<OwnedTestEntity, OwnedTestEntityBaseRepository> buildOwnerCondition(
+			final @NonNull String login) {
+		return new OwnerCondition(login);
+	}
+
+	@Override
+	public void onForbiddenOperation(OwnedTestEntity entity, QueryType queryType) {
+		throw new AccessDeniedException("access denied");
+	}
+
+	@RequiredArgsConstructor
+	public static class OwnerCondition
+			implements ConditionWithQuerydsl<OwnedTestEntity, OwnedTestEntityBaseRepository> {
+
+		protected final @NonNull String login;
+
+		@Override
+		public com.querydsl.core.types.@NonNull Predicate asPredicate() {
+			return QOwnedTestEntity.ownedTestEntity.owner.eq(login);
+		}
+
+		@Override
+		public void checkEntity(@NonNull OwnedTestEntityBaseRepository repository, @NonNull OwnedTestEntity entity,
+				@NonNull QueryType queryType) {
+			if (!Objects.equal(entity.getOwner(), login)) {
+				throw new AccessDeniedException("No rights exception");
+			}
+		}
+
+		@Override
+		public Object getCurrentUserSecurityCheckCacheKey() {
+			return login;
+		}
+
+		@Override
+		public Object getEntitySecurityCheckCacheKey(OwnedTestEntity entity) {
+			return entity.getOwner();
+		}
+
+		@Override
+		public Predicate toPredicate(@NonNull Root<OwnedTestEntity> root, @NonNull CommonAbstractCriteria cac,
+				@NonNull CriteriaBuilder cb, QueryType queryType) {
+
+			return cb.equal(root.get("owner"), login);
+		}
+
+	}
+
+}
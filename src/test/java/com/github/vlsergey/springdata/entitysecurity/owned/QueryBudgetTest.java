@@ -0,0 +1,359 @@
+package com.github.vlsergey.springdata.entitysecurity.owned;
+
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.test.context.ContextConfiguration;
+
+import com.github.vlsergey.springdata.entitysecurity.TestQueryListener;
+
+/**
+ * Locks in number of statements executed by each method of secured repository
+ * and Querydsl executor with regular (neither always true nor always false)
+ * condition. If one of these tests fails because number of queries was
+ * increased, it is likely N+1 regression of the security layer.
+ */
+@DataJpaTest
+@ContextConfiguration(classes = TestConfiguration.class)
+class QueryBudgetTest {
+
+	private static final QOwnedTestEntity ENTITY = QOwnedTestEntity.ownedTestEntity;
+
+	@Autowired
+	private BatchedOwnedTestEntityRepository batchedRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	/**
+	 * Entities of current user (first two) and of other user (last one),
+	 * detached
+	 */
+	private List<OwnedTestEntity> entities;
+
+	private List<UUID> ids;
+
+	@Autowired
+	private TestQueryListener queryListener;
+
+	@Autowired
+	private OwnedTestEntityRepository testRepository;
+
+	@AfterAll
+	static void clearSecurityContext() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@BeforeAll
+	static void initSecurityContext() {
+		SecurityContextHolder.setContext(new SecurityContextImpl());
+	}
+
+	private static List<OwnedTestEntity> newEntities() {
+		return Stream.of(1, 2).map(value -> {
+			OwnedTestEntity entity = new OwnedTestEntity();
+			entity.setOwner("testUser");
+			entity.setValue(value);
+			return entity;
+		}).collect(toList());
+	}
+
+	private static Specification<OwnedTestEntity> valueIs(int value) {
+		return (root, cq, cb) -> cb.equal(root.get("value"), value);
+	}
+
+	@BeforeEach
+	void createEntities() {
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken("root", null, emptyList()));
+
+		entities = Stream.of("testUser", "testUser", "otherUser").map(owner -> {
+			OwnedTestEntity entity = new OwnedTestEntity();
+			entity.setOwner(owner);
+			entity.setValue(42);
+			return testRepository.save(entity);
+		}).collect(toList());
+		testRepository.flush();
+		entityManager.clear();
+		ids = entities.stream().map(OwnedTestEntity::getId).collect(toList());
+
+		SecurityContextHolder.getContext()
+				.setAuthentication(new TestingAuthenticationToken("testUser", null, emptyList()));
+	}
+
+	@Test
+	void count() {
+		queryListener.assertQueries(testRepository::count).selects(1).total(1);
+		queryListener.assertQueries(() -> testRepository.count(valueIs(42))).selects(1).total(1);
+		queryListener.assertQueries(() -> testRepository.count(ENTITY.value.eq(42))).selects(1).total(1);
+	}
+
+	@Test
+	void delete() {
+		final OwnedTestEntity entity = testRepository.findById(ids.get(0)).get();
+
+		// refresh of old entity state
+		queryListener.assertQueries(() -> {
+			testRepository.delete(entity);
+			testRepository.flush();
+		}).selects(1).deletes(1).total(2);
+	}
+
+	@Test
+	void deleteAll() {
+		// single bulk delete, entities are not loaded
+		queryListener.assertQueries(testRepository::deleteAll).deletes(1).total(1);
+	}
+
+	@Test
+	void deleteAllByIdInBatch() {
+		queryListener.assertQueries(() -> testRepository.deleteAllByIdInBatchReturningCount(ids)).deletes(1)
+				.total(1);
+
+		// 3 IDs with idsBatchSize = 2
+		queryListener.assertQueries(() -> batchedRepository.deleteAllByIdInBatchReturningCount(ids)).deletes(2)
+				.total(2);
+	}
+
+	@Test
+	void deleteAllInBatch() {
+		queryListener.assertQueries(testRepository::deleteAllInBatchReturningCount).deletes(1).total(1);
+	}
+
+	@Test
+	void deleteAllInBatchOfEntities() {
+		queryListener.assertQueries(() -> testRepository.deleteAllInBatch(entities)).deletes(1).total(1);
+
+		// 3 entities with idsBatchSize = 2
+		queryListener.assertQueries(() -> batchedRepository.deleteAllInBatch(entities)).deletes(2).total(2);
+	}
+
+	@Test
+	void deleteById() {
+		// check of ID, then secured findById() and delete() by SimpleJpaRepository
+		queryListener.assertQueries(() -> {
+			testRepository.deleteById(ids.get(0));
+			testRepository.flush();
+		}).selects(3).deletes(1).total(4);
+	}
+
+	@Test
+	void deleteDetached() {
+		// existence without and with condition, then find() by SimpleJpaRepository
+		queryListener.assertQueries(() -> {
+			testRepository.delete(entities.get(0));
+			testRepository.flush();
+		}).selects(3).deletes(1).total(4);
+	}
+
+	@Test
+	void exists() {
+		queryListener.assertQueries(() -> testRepository.existsById(ids.get(0))).selects(1).total(1);
+		queryListener.assertQueries(() -> testRepository.exists(ENTITY.value.eq(42))).selects(1).total(1);
+	}
+
+	@Test
+	void findAll() {
+		queryListener.assertQueries(testRepository::findAll).selects(1).total(1);
+		queryListener.assertQueries(() -> testRepository.findAll(Sort.by("value"))).selects(1).total(1);
+		queryListener.assertQueries(() -> testRepository.findAll(valueIs(42))).selects(1).total(1);
+		queryListener.assertQueries(() -> testRepository.findAll(valueIs(42), Sort.by("value"))).selects(1)
+				.total(1);
+	}
+
+	@Test
+	void findAllAfter() {
+		queryListener.assertQueries(() -> testRepository.findAllAfter(null, Sort.by("value"), null, 1)).selects(1)
+				.total(1);
+	}
+
+	@Test
+	void findAllById() {
+		queryListener.assertQueries(() -> testRepository.findAllById(ids)).selects(1).total(1);
+
+		// 3 IDs with idsBatchSize = 2
+		queryListener.assertQueries(() -> batchedRepository.findAllById(ids)).selects(2).total(2);
+	}
+
+	@Test
+	void findAllPaged() {
+		// page is full, so total is counted with separate query
+		queryListener.assertQueries(() -> testRepository.findAll(PageRequest.of(0, 1))).selects(2).total(2);
+		queryListener.assertQueries(() -> testRepository.findAll(valueIs(42), PageRequest.of(0, 1))).selects(2)
+				.total(2);
+		queryListener.assertQueries(() -> testRepository.findAll(ENTITY.value.eq(42), PageRequest.of(0, 1)))
+				.selects(2).total(2);
+	}
+
+	@Test
+	void findAllQuerydsl() {
+		queryListener.assertQueries(() -> testRepository.findAll(ENTITY.value.eq(42))).selects(1).total(1);
+		queryListener.assertQueries(() -> testRepository.findAll(ENTITY.value.asc())).selects(1).total(1);
+		queryListener.assertQueries(() -> testRepository.findAll(ENTITY.value.eq(42), ENTITY.value.asc()))
+				.selects(1).total(1);
+		queryListener.assertQueries(() -> testRepository.findAll(ENTITY.value.eq(42), Sort.by("value")))
+				.selects(1).total(1);
+	}
+
+	@Test
+	void findById() {
+		queryListener.assertQueries(() -> testRepository.findById(ids.get(0))).selects(1).total(1);
+		queryListener.assertQueries(() -> testRepository.findById(ids.get(2))).selects(1).total(1);
+	}
+
+	@Test
+	void findByValue() {
+		queryListener.assertQueries(() -> testRepository.findByValue(42)).selects(1).total(1);
+	}
+
+	@Test
+	void findOne() {
+		queryListener.assertQueries(() -> testRepository.findOne(valueIs(-1))).selects(1).total(1);
+		queryListener.assertQueries(() -> testRepository.findOne(ENTITY.value.eq(-1))).selects(1).total(1);
+	}
+
+	@Test
+	void getById() {
+		queryListener.assertQueries(() -> testRepository.getById(ids.get(0))).selects(1).total(1);
+	}
+
+	@Test
+	void noQueriesIfAlwaysFalse() {
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("", null, emptyList()));
+
+		queryListener.assertQueries(() -> {
+			testRepository.count();
+			testRepository.deleteAll();
+			testRepository.deleteAllInBatch(entities);
+			testRepository.existsById(ids.get(0));
+			testRepository.findAll();
+			testRepository.findAll(PageRequest.of(0, 1));
+			testRepository.findAllById(ids);
+			testRepository.findById(ids.get(0));
+			testRepository.deleteAllInBatchReturningCount();
+		}).total(0);
+	}
+
+	@Test
+	void save() {
+		final OwnedTestEntity entity = new OwnedTestEntity();
+		entity.setOwner("testUser");
+
+		queryListener.assertQueries(() -> {
+			testRepository.save(entity);
+			testRepository.flush();
+		}).inserts(1).total(1);
+	}
+
+	@Test
+	void saveAll() {
+		final List<OwnedTestEntity> newEntities = newEntities();
+
+		queryListener.assertQueries(() -> {
+			testRepository.saveAll(newEntities);
+			testRepository.flush();
+		}).inserts(2).total(2);
+	}
+
+	@Test
+	void saveAllAndFlush() {
+		final List<OwnedTestEntity> newEntities = newEntities();
+
+		queryListener.assertQueries(() -> testRepository.saveAllAndFlush(newEntities)).inserts(2).total(2);
+	}
+
+	@Test
+	void saveAllAndFlushDetached() {
+		final List<OwnedTestEntity> detached = entities.subList(0, 2);
+		detached.forEach(entity -> entity.setValue(1));
+
+		// single query to load current state of all detached entities
+		queryListener.assertQueries(() -> testRepository.saveAllAndFlush(detached)).selects(1).updates(2).total(3);
+	}
+
+	@Test
+	void saveAllAndFlushManaged() {
+		final List<OwnedTestEntity> managed = testRepository.findAllById(ids.subList(0, 2));
+		managed.forEach(entity -> entity.setValue(1));
+
+		// single query to find entities forbidden to update
+		queryListener.assertQueries(() -> testRepository.saveAllAndFlush(managed)).selects(1).updates(2).total(3);
+	}
+
+	@Test
+	void saveAllDetached() {
+		final List<OwnedTestEntity> detached = entities.subList(0, 2);
+		detached.forEach(entity -> entity.setValue(1));
+
+		// single query to load current state of all detached entities
+		queryListener.assertQueries(() -> {
+			testRepository.saveAll(detached);
+			testRepository.flush();
+		}).selects(1).updates(2).total(3);
+	}
+
+	@Test
+	void saveAllManaged() {
+		final List<OwnedTestEntity> managed = testRepository.findAllById(ids.subList(0, 2));
+		managed.forEach(entity -> entity.setValue(1));
+
+		// single query to find entities forbidden to update
+		queryListener.assertQueries(() -> {
+			testRepository.saveAll(managed);
+			testRepository.flush();
+		}).selects(1).updates(2).total(3);
+	}
+
+	@Test
+	void saveDetached() {
+		final OwnedTestEntity entity = entities.get(0);
+		entity.setValue(1);
+
+		// current state of entity is loaded to check it
+		queryListener.assertQueries(() -> {
+			testRepository.save(entity);
+			testRepository.flush();
+		}).selects(1).updates(1).total(2);
+	}
+
+	@Test
+	void saveManaged() {
+		final OwnedTestEntity entity = testRepository.findById(ids.get(0)).get();
+		entity.setValue(1);
+
+		// existence check with UPDATE condition
+		queryListener.assertQueries(() -> {
+			testRepository.save(entity);
+			testRepository.flush();
+		}).selects(1).updates(1).total(2);
+	}
+
+	@Test
+	void streamAll() {
+		queryListener.assertQueries(() -> {
+			try (Stream<OwnedTestEntity> stream = testRepository.streamAll(null, 10)) {
+				stream.forEach(entity -> {
+				});
+			}
+		}).selects(1).total(1);
+	}
+
+}
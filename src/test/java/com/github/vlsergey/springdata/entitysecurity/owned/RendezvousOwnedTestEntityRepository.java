@@ -0,0 +1,55 @@
+package com.github.vlsergey.springdata.entitysecurity.owned;
+
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.persistence.criteria.CommonAbstractCriteria;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import com.github.vlsergey.springdata.entitysecurity.ConditionWithQuerydsl;
+import com.github.vlsergey.springdata.entitysecurity.QueryType;
+import com.github.vlsergey.springdata.entitysecurity.SecuredWith;
+
+import lombok.NonNull;
+
+@SecuredWith(RendezvousOwnedTestEntityRepository.RendezvousOwnedTestEntitySecurityMixin.class)
+public interface RendezvousOwnedTestEntityRepository extends OwnedTestEntityBaseRepository {
+
+	/**
+	 * Owner-based mixin, which predicate is built only when all parties of
+	 * {@link #BARRIER} (if it is set) are building predicates at the same time
+	 */
+	class RendezvousOwnedTestEntitySecurityMixin extends OwnedTestEntitySecurityMixin {
+
+		static final AtomicReference<CyclicBarrier> BARRIER = new AtomicReference<>();
+
+		@Override
+		protected ConditionWithQuerydsl<OwnedTestEntity, OwnedTestEntityBaseRepository> buildOwnerCondition(
+				final @NonNull String login) {
+			return new OwnerCondition(login) {
+
+				@Override
+				public Predicate toPredicate(@NonNull Root<OwnedTestEntity> root, @NonNull CommonAbstractCriteria cac,
+						@NonNull CriteriaBuilder cb, QueryType queryType) {
+					final CyclicBarrier barrier = BARRIER.get();
+					if (barrier != null) {
+						try {
+							barrier.await(10, TimeUnit.SECONDS);
+						} catch (BrokenBarrierException | InterruptedException | TimeoutException exc) {
+							throw new IllegalStateException("Predicates are not built at the same time", exc);
+						}
+					}
+					return super.toPredicate(root, cac, cb, queryType);
+				}
+
+			};
+		}
+
+	}
+
+}
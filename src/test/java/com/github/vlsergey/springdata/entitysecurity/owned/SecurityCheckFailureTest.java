@@ -0,0 +1,85 @@
+package com.github.vlsergey.springdata.entitysecurity.owned;
+
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.test.context.ContextConfiguration;
+
+import com.github.vlsergey.springdata.entitysecurity.owned.FlakyOwnedTestEntityRepository.FlakyOwnedTestEntitySecurityMixin;
+
+/**
+ * Failure of entity check itself is not a denial, thus it must not be cached
+ */
+@DataJpaTest
+@ContextConfiguration(classes = TestConfiguration.class)
+class SecurityCheckFailureTest {
+
+	@Autowired
+	private FlakyOwnedTestEntityRepository testRepository;
+
+	@AfterAll
+	static void clearSecurityContext() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@BeforeAll
+	static void initSecurityContext() {
+		SecurityContextHolder.setContext(new SecurityContextImpl());
+	}
+
+	private static OwnedTestEntity ownedBy(String owner) {
+		final OwnedTestEntity entity = new OwnedTestEntity();
+		entity.setOwner(owner);
+		entity.setValue(42);
+		return entity;
+	}
+
+	@AfterEach
+	void resetFailures() {
+		FlakyOwnedTestEntitySecurityMixin.FAILURES_LEFT.set(0);
+	}
+
+	@BeforeEach
+	void setCurrentUser() {
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("bar", null, emptyList()));
+	}
+
+	@Test
+	void deniedCheckIsCachedAfterFailedOne() {
+		FlakyOwnedTestEntitySecurityMixin.FAILURES_LEFT.set(1);
+		final OwnedTestEntity entity = ownedBy("foo");
+
+		assertThrows(QueryTimeoutException.class, () -> testRepository.save(entity));
+
+		// checked again, denial comes from Condition.checkEntity()
+		AccessDeniedException first = assertThrows(AccessDeniedException.class, () -> testRepository.save(entity));
+		assertEquals("No rights exception", first.getMessage());
+
+		// cached denial is reported via SecurityMixin
+		AccessDeniedException second = assertThrows(AccessDeniedException.class, () -> testRepository.save(entity));
+		assertEquals("access denied", second.getMessage());
+	}
+
+	@Test
+	void failedCheckIsNotCachedAsDenial() {
+		FlakyOwnedTestEntitySecurityMixin.FAILURES_LEFT.set(1);
+
+		assertThrows(QueryTimeoutException.class, () -> testRepository.save(ownedBy("bar")));
+		assertNotNull(testRepository.save(ownedBy("bar")).getId());
+	}
+
+}
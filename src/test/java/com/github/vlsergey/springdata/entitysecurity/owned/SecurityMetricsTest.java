@@ -0,0 +1,168 @@
+package com.github.vlsergey.springdata.entitysecurity.owned;
+
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.test.context.ContextConfiguration;
+
+import com.github.vlsergey.springdata.entitysecurity.TestQueryListener;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DataJpaTest
+@ContextConfiguration(classes = TestConfiguration.class)
+@Import(SimpleMeterRegistry.class)
+class SecurityMetricsTest {
+
+	private static final String REPOSITORY = OwnedTestEntityRepository.class.getSimpleName();
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private TestQueryListener queryListener;
+
+	@Autowired
+	private OwnedTestEntityRepository testRepository;
+
+	@AfterAll
+	static void clearSecurityContext() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@BeforeAll
+	static void initSecurityContext() {
+		SecurityContextHolder.setContext(new SecurityContextImpl());
+	}
+
+	private long conditionBuilds() {
+		return meterRegistry.get("entity.security.condition.build").tag("repository", REPOSITORY).timer().count();
+	}
+
+	private double count(String name, String queryType, String result) {
+		return meterRegistry.get(name).tag("repository", REPOSITORY).tag("queryType", queryType).tag("result", result)
+				.counter().count();
+	}
+
+	private double shortCircuits(String result) {
+		return count("entity.security.condition.shortcircuit", "SELECT", result);
+	}
+
+	private void setCurrentUser(String login) {
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(login, null, emptyList()));
+	}
+
+	@Test
+	void checksAreMeasured() {
+		setCurrentUser("testUser");
+		final long checksBefore = meterRegistry.get("entity.security.check").tag("repository", REPOSITORY)
+				.tag("queryType", "INSERT").timer().count();
+		final double missesBefore = count("entity.security.check.cache", "INSERT", "miss");
+		final double hitsBefore = count("entity.security.check.cache", "INSERT", "hit");
+
+		// second check of the same owner is taken from cache
+		for (int i = 0; i < 2; i++) {
+			OwnedTestEntity entity = new OwnedTestEntity();
+			entity.setOwner("testUser");
+			entity.setValue(i);
+			testRepository.save(entity);
+		}
+
+		assertEquals(checksBefore + 1, meterRegistry.get("entity.security.check").tag("repository", REPOSITORY)
+				.tag("queryType", "INSERT").timer().count());
+		assertEquals(missesBefore + 1, count("entity.security.check.cache", "INSERT", "miss"));
+		assertEquals(hitsBefore + 1, count("entity.security.check.cache", "INSERT", "hit"));
+		assertTrue(meterRegistry.get("entity.security.condition.build").tag("repository", REPOSITORY).timer()
+				.count() > 0);
+	}
+
+	@Test
+	void checkQueriesAreCounted() {
+		setCurrentUser("testUser");
+		OwnedTestEntity entity = new OwnedTestEntity();
+		entity.setOwner("testUser");
+		entity = testRepository.saveAndFlush(entity);
+		entityManager.clear();
+
+		final OwnedTestEntity loaded = testRepository.findById(entity.getId()).get();
+		final double before = meterRegistry.get("entity.security.check.queries").tag("repository", REPOSITORY)
+				.tag("queryType", "UPDATE").counter().count();
+
+		loaded.setValue(1);
+		testRepository.save(loaded);
+
+		assertEquals(before + 1, meterRegistry.get("entity.security.check.queries").tag("repository", REPOSITORY)
+				.tag("queryType", "UPDATE").counter().count());
+	}
+
+	@Test
+	void querydslCallBuildsConditionOnce() {
+		setCurrentUser("testUser");
+		final QOwnedTestEntity entity = QOwnedTestEntity.ownedTestEntity;
+
+		long before = conditionBuilds();
+		testRepository.findAll(entity.value.eq(42));
+		assertEquals(before + 1, conditionBuilds());
+
+		before = conditionBuilds();
+		testRepository.count(entity.value.eq(42));
+		assertEquals(before + 1, conditionBuilds());
+
+		// both content and count queries are created (page beyond the last one
+		// requires count)
+		before = conditionBuilds();
+		queryListener.assertQueries(() -> testRepository.findAll(entity.value.eq(42), PageRequest.of(1, 1)))
+				.selects(2).total(2);
+		assertEquals(before + 1, conditionBuilds());
+	}
+
+	@Test
+	void shortCircuitsAreCounted() {
+		final QOwnedTestEntity entity = QOwnedTestEntity.ownedTestEntity;
+		final double deniedBefore = shortCircuits("denied");
+		final double unrestrictedBefore = shortCircuits("unrestricted");
+
+		// always true condition queries database without restriction
+		setCurrentUser("root");
+		queryListener.assertQueries(() -> {
+			testRepository.findAll();
+			testRepository.findAll(entity.value.eq(42));
+		}).selects(2).total(2);
+		assertEquals(unrestrictedBefore + 2, shortCircuits("unrestricted"));
+		assertEquals(deniedBefore, shortCircuits("denied"));
+
+		// always false condition does not query database at all
+		setCurrentUser("");
+		queryListener.assertQueries(() -> {
+			testRepository.findAll();
+			testRepository.findAll(entity.value.eq(42));
+		}).total(0);
+		assertEquals(unrestrictedBefore + 2, shortCircuits("unrestricted"));
+		assertEquals(deniedBefore + 2, shortCircuits("denied"));
+
+		// regular user condition is applied, nothing is short-circuited
+		setCurrentUser("testUser");
+		testRepository.findAll();
+		testRepository.findAll(entity.value.eq(42));
+		assertEquals(unrestrictedBefore + 2, shortCircuits("unrestricted"));
+		assertEquals(deniedBefore + 2, shortCircuits("denied"));
+	}
+
+}
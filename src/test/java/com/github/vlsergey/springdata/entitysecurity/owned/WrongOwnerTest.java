@@ -1,9 +1,13 @@
 package com.github.vlsergey.springdata.entitysecurity.owned;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.UUID;
 
@@ -26,6 +30,8 @@ import org.springframework.transaction.annotation.Transactional;
 @ContextConfiguration(classes = TestConfiguration.class)
 class WrongOwnerTest {
 
+	private OwnedTestEntity notMyEntity;
+
 	private UUID notMyEntityId;
 
 	@Autowired
@@ -46,17 +52,62 @@ class WrongOwnerTest {
 		fooItem.setOwner("foo");
 		fooItem.setValue(42);
 		fooItem = testRepository.save(fooItem);
+		notMyEntity = fooItem;
 		notMyEntityId = fooItem.getId();
 		testRepository.flush();
 
 		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("bar", null, emptyList()));
 	}
 
+	@Test
+	void deleteAllByIdInBatchDeletesOnlyMyItems() {
+		OwnedTestEntity barItem = new OwnedTestEntity();
+		barItem.setOwner("bar");
+		barItem.setValue(84);
+		barItem = testRepository.saveAndFlush(barItem);
+
+		assertEquals(1,
+				testRepository.deleteAllByIdInBatchReturningCount(asList(notMyEntityId, barItem.getId())));
+		assertFalse(testRepository.existsById(barItem.getId()));
+
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("foo", null, emptyList()));
+		assertTrue(testRepository.existsById(notMyEntityId));
+	}
+
+	@Test
+	void deleteAllInBatchDeletesOnlyMyItems() {
+		OwnedTestEntity barItem = new OwnedTestEntity();
+		barItem.setOwner("bar");
+		barItem.setValue(84);
+		testRepository.saveAndFlush(barItem);
+
+		assertEquals(1, testRepository.deleteAllInBatchReturningCount());
+
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("foo", null, emptyList()));
+		assertTrue(testRepository.existsById(notMyEntityId));
+	}
+
 	@Test
 	void deleteByIdReturnsFalse() {
 		assertThrows(EmptyResultDataAccessException.class, () -> testRepository.deleteById(notMyEntityId));
 	}
 
+	@Test
+	void deniedCheckIsCachedAndReportedThroughMixin() {
+		final OwnedTestEntity barItem = new OwnedTestEntity();
+		barItem.setId(notMyEntityId);
+		barItem.setOwner("bar");
+		barItem.setValue(84);
+
+		// first denial comes from Condition.checkEntity()
+		AccessDeniedException first = assertThrows(AccessDeniedException.class, () -> testRepository.save(barItem));
+		assertEquals("No rights exception", first.getMessage());
+
+		// second one is taken from cache and reported via SecurityMixin
+		AccessDeniedException second = assertThrows(AccessDeniedException.class, () -> testRepository.save(barItem));
+		assertEquals("access denied", second.getMessage());
+	}
+
 	@Test
 	void existsByIdReturnsFalse() {
 		assertFalse(testRepository.existsById(notMyEntityId));
@@ -75,6 +126,31 @@ class WrongOwnerTest {
 		assertThrows(JpaSystemException.class, () -> testRepository.saveAndFlush(afterSave));
 	}
 
+	@Test
+	void saveAllWithNotMyDetachedItemThrowsException() {
+		final OwnedTestEntity barItem = new OwnedTestEntity();
+		barItem.setOwner("bar");
+		barItem.setValue(84);
+
+		final OwnedTestEntity barItemWithWrongId = new OwnedTestEntity();
+		barItemWithWrongId.setId(notMyEntityId);
+		barItemWithWrongId.setOwner("bar");
+		barItemWithWrongId.setValue(84);
+
+		assertThrows(AccessDeniedException.class, () -> {
+			testRepository.saveAll(asList(barItem, barItemWithWrongId));
+		});
+	}
+
+	@Test
+	void saveAllWithNotMyManagedItemThrowsException() {
+		notMyEntity.setValue(84);
+
+		assertThrows(AccessDeniedException.class, () -> {
+			testRepository.saveAll(singletonList(notMyEntity));
+		});
+	}
+
 	@Test
 	void saveExistingItemWithChangedAndWrondIdThrowsException() {
 		OwnedTestEntity barItem = new OwnedTestEntity();
@@ -0,0 +1,31 @@
+package com.github.vlsergey.springdata.entitysecurity.parallelcount;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+public class CountingExecutor implements Executor {
+
+	private final AtomicInteger executed = new AtomicInteger();
+
+	private final @NonNull ExecutorService executorService;
+
+	@Override
+	public void execute(Runnable command) {
+		executed.incrementAndGet();
+		executorService.execute(command);
+	}
+
+	public int getExecuted() {
+		return executed.get();
+	}
+
+	public void shutdown() {
+		executorService.shutdownNow();
+	}
+
+}
@@ -0,0 +1,10 @@
+package com.github.vlsergey.springdata.entitysecurity.parallelcount;
+
+import com.github.vlsergey.springdata.entitysecurity.SecuredWith;
+import com.github.vlsergey.springdata.entitysecurity.owned.OwnedTestEntityBaseRepository;
+import com.github.vlsergey.springdata.entitysecurity.owned.OwnedTestEntitySecurityMixin;
+
+@SecuredWith(value = OwnedTestEntitySecurityMixin.class, parallelCount = true, countExecutor = "countExecutor")
+public interface ParallelCountOwnedTestEntityRepository extends OwnedTestEntityBaseRepository {
+
+}
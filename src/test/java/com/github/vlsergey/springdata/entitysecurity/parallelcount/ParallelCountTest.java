@@ -0,0 +1,177 @@
+package com.github.vlsergey.springdata.entitysecurity.parallelcount;
+
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.github.vlsergey.springdata.entitysecurity.TestQueryListener;
+import com.github.vlsergey.springdata.entitysecurity.owned.OwnedTestEntity;
+import com.github.vlsergey.springdata.entitysecurity.owned.QOwnedTestEntity;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+
+/**
+ * Count query is executed with separate EntityManager, thus test data must be
+ * committed.
+ */
+@DataJpaTest
+@ContextConfiguration(classes = TestConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ParallelCountTest {
+
+	@Autowired
+	private CountingExecutor countExecutor;
+
+	@Autowired
+	private IdleCountOwnedTestEntityRepository idleExecutorRepository;
+
+	@Autowired
+	private TestQueryListener queryListener;
+
+	@Autowired
+	private SameThreadCountOwnedTestEntityRepository sameThreadExecutorRepository;
+
+	@Autowired
+	private ParallelCountOwnedTestEntityRepository testRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@AfterEach
+	void afterEach() {
+		setCurrentUser("root");
+		testRepository.deleteAll();
+		SecurityContextHolder.clearContext();
+	}
+
+	@BeforeEach
+	void beforeEach() {
+		setCurrentUser("root");
+		Stream.of(1, 2, 3, 4, 5).forEach(value -> {
+			Stream.of("testUser", "otherUser").forEach(owner -> {
+				OwnedTestEntity entity = new OwnedTestEntity();
+				entity.setOwner(owner);
+				entity.setValue(value);
+				testRepository.save(entity);
+			});
+		});
+		setCurrentUser("testUser");
+	}
+
+	private static void setCurrentUser(String user) {
+		SecurityContextHolder.setContext(new SecurityContextImpl());
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(user, null, emptyList()));
+	}
+
+	@Test
+	void findAllPageCountsInParallel() {
+		final int executedBefore = countExecutor.getExecuted();
+
+		final List<String> queries = queryListener.listen(() -> {
+			final Page<OwnedTestEntity> page = testRepository.findAll(PageRequest.of(1, 2, Sort.by("value")));
+			assertEquals(5, page.getTotalElements());
+			assertThat(page.getContent().stream().map(OwnedTestEntity::getValue).collect(toList()),
+					contains(3, 4));
+		});
+
+		assertEquals(executedBefore + 1, countExecutor.getExecuted());
+		assertThat(queries, hasSize(2));
+		assertThat(queries, everyItem(matchesPattern("^select .* from owned_test_entity .*owner=\\?.*$")));
+	}
+
+	@Test
+	void findAllSpecificationPageCountsInParallel() {
+		final int executedBefore = countExecutor.getExecuted();
+
+		final Page<OwnedTestEntity> page = testRepository.findAll(
+				(root, cq, cb) -> cb.greaterThan(root.get("value"), 1), PageRequest.of(0, 3, Sort.by("value")));
+		assertEquals(4, page.getTotalElements());
+		assertThat(page.getContent().stream().map(OwnedTestEntity::getValue).collect(toList()),
+				contains(2, 3, 4));
+
+		assertEquals(executedBefore + 1, countExecutor.getExecuted());
+	}
+
+	@Test
+	void querydslFindAllPageCountsInParallel() {
+		final int executedBefore = countExecutor.getExecuted();
+
+		final QOwnedTestEntity entity = QOwnedTestEntity.ownedTestEntity;
+		// page is full, so total is taken from count query, not computed from page
+		// content
+		final List<String> queries = queryListener.listen(() -> {
+			final Page<OwnedTestEntity> page = testRepository.findAll(entity.value.lt(5),
+					PageRequest.of(0, 3, Sort.by("value")));
+			assertEquals(4, page.getTotalElements());
+			assertThat(page.getContent().stream().map(OwnedTestEntity::getValue).collect(toList()),
+					contains(1, 2, 3));
+		});
+
+		assertEquals(executedBefore + 1, countExecutor.getExecuted());
+		assertThat(queries, hasSize(2));
+		assertThat(queries, everyItem(matchesPattern("^select .* from owned_test_entity .*value<\\?.*owner=\\?.*$")));
+	}
+
+	@Test
+	void findAllPageUnderRootCountsAllEntities() {
+		setCurrentUser("root");
+		assertEquals(10, testRepository.findAll(PageRequest.of(0, 2)).getTotalElements());
+	}
+
+	@Test
+	void countNotStartedByExecutorIsExecutedByCaller() {
+		final QOwnedTestEntity entity = QOwnedTestEntity.ownedTestEntity;
+
+		final List<ExecutionInfo> executions = queryListener
+				.listenExecutions(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+					assertEquals(5, idleExecutorRepository.findAll(PageRequest.of(0, 2)).getTotalElements());
+					assertEquals(4, idleExecutorRepository.findAll(entity.value.lt(5), PageRequest.of(0, 2))
+							.getTotalElements());
+				}));
+
+		// both content and count queries use connection of caller transaction
+		assertThat(executions, hasSize(4));
+		assertThat(executions.stream().map(ExecutionInfo::getConnectionId).distinct().collect(toList()),
+				hasSize(1));
+	}
+
+	@Test
+	void countUsesSeparateConnection() {
+		final List<ExecutionInfo> executions = queryListener
+				.listenExecutions(() -> new TransactionTemplate(transactionManager).executeWithoutResult(
+						status -> assertEquals(5, sameThreadExecutorRepository.findAll(PageRequest.of(0, 2))
+								.getTotalElements())));
+
+		// count query is executed with own connection, not with one of caller
+		// transaction
+		assertThat(executions, hasSize(2));
+		assertNotEquals(executions.get(0).getConnectionId(), executions.get(1).getConnectionId());
+	}
+
+}
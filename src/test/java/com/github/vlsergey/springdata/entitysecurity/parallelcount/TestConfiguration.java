@@ -0,0 +1,47 @@
+package com.github.vlsergey.springdata.entitysecurity.parallelcount;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import com.github.vlsergey.springdata.entitysecurity.QueryListeningConfiguration;
+import com.github.vlsergey.springdata.entitysecurity.SecuredJpaRepositoryFactoryBean;
+import com.github.vlsergey.springdata.entitysecurity.owned.OwnedTestEntity;
+
+@Configuration
+@EnableJpaRepositories(repositoryFactoryBeanClass = SecuredJpaRepositoryFactoryBean.class)
+@ComponentScan
+@EntityScan(basePackageClasses = OwnedTestEntity.class)
+@Import(QueryListeningConfiguration.class)
+public class TestConfiguration {
+
+	@Bean(destroyMethod = "shutdown")
+	public CountingExecutor countExecutor() {
+		return new CountingExecutor(Executors.newFixedThreadPool(2));
+	}
+
+	/**
+	 * Never executes tasks, like executor with all threads busy
+	 */
+	@Bean
+	public Executor idleCountExecutor() {
+		return command -> {
+		};
+	}
+
+	/**
+	 * Executes count query before content query, so connections used by them can
+	 * be told apart
+	 */
+	@Bean
+	public Executor sameThreadCountExecutor() {
+		return Runnable::run;
+	}
+
+}
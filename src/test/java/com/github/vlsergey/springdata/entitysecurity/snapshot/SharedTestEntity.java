@@ -0,0 +1,35 @@
+package com.github.vlsergey.springdata.entitysecurity.snapshot;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.persistence.ElementCollection;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+@Entity
+@Getter
+@Setter
+@ToString
+public class SharedTestEntity {
+
+	/**
+	 * Logins of users allowed to access entity
+	 */
+	@ElementCollection
+	private Set<String> editors = new HashSet<>();
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.AUTO)
+	private UUID id;
+
+	private int value;
+
+}
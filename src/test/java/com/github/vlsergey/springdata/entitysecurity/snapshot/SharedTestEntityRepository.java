@@ -0,0 +1,69 @@
+package com.github.vlsergey.springdata.entitysecurity.snapshot;
+
+import java.util.Set;
+import java.util.UUID;
+
+import javax.persistence.criteria.CommonAbstractCriteria;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.github.vlsergey.springdata.entitysecurity.Condition;
+import com.github.vlsergey.springdata.entitysecurity.QueryType;
+import com.github.vlsergey.springdata.entitysecurity.SecuredWith;
+import com.github.vlsergey.springdata.entitysecurity.SecurityMixin;
+import com.github.vlsergey.springdata.entitysecurity.StandardConditions;
+import com.github.vlsergey.springdata.entitysecurity.snapshot.SharedTestEntityRepository.SharedTestEntitySecurityMixin;
+
+import lombok.NonNull;
+
+@SecuredWith(value = SharedTestEntitySecurityMixin.class, snapshotChecks = true)
+public interface SharedTestEntityRepository extends JpaRepository<SharedTestEntity, UUID> {
+
+	/**
+	 * Allows everything to <tt>root</tt>, nothing to user with empty name, and
+	 * only entities listing him as editor to anyone else
+	 */
+	class SharedTestEntitySecurityMixin implements SecurityMixin<SharedTestEntity, SharedTestEntityRepository> {
+		@Override
+		public Condition<SharedTestEntity, SharedTestEntityRepository> buildCondition() {
+			final String login = SecurityContextHolder.getContext().getAuthentication().getName();
+
+			if (login.equals("root")) {
+				return StandardConditions.alwaysAllowCondition();
+			}
+			if (login == null || login.isEmpty()) {
+				return StandardConditions.deny(() -> new AccessDeniedException("No rights exception"));
+			}
+
+			return new Condition<SharedTestEntity, SharedTestEntityRepository>() {
+
+				@Override
+				public void checkEntity(@NonNull SharedTestEntityRepository repository,
+						@NonNull SharedTestEntity entity, @NonNull QueryType queryType) {
+					if (!entity.getEditors().contains(login)) {
+						throw new AccessDeniedException("No rights exception");
+					}
+				}
+
+				@Override
+				public Predicate toPredicate(@NonNull Root<SharedTestEntity> root,
+						@NonNull CommonAbstractCriteria query, @NonNull CriteriaBuilder cb, QueryType queryType) {
+					return cb.isMember(login, root.<Set<String>>get("editors"));
+				}
+
+			};
+		}
+
+		@Override
+		public void onForbiddenOperation(SharedTestEntity entity, QueryType queryType) {
+			throw new AccessDeniedException("access denied");
+		}
+
+	}
+
+}
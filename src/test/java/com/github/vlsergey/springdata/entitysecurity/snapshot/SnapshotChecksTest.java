@@ -0,0 +1,148 @@
+package com.github.vlsergey.springdata.entitysecurity.snapshot;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.test.context.ContextConfiguration;
+
+import com.github.vlsergey.springdata.entitysecurity.TestQueryListener;
+import com.github.vlsergey.springdata.entitysecurity.owned.OwnedTestEntity;
+import com.github.vlsergey.springdata.entitysecurity.snapshot.SnapshotOwnedTestEntityRepository.ForbiddenUpdateException;
+
+@DataJpaTest
+@ContextConfiguration(classes = TestConfiguration.class)
+class SnapshotChecksTest {
+
+	@Autowired
+	private TestQueryListener queryListener;
+
+	@Autowired
+	private SharedTestEntityRepository sharedRepository;
+
+	@Autowired
+	private SnapshotOwnedTestEntityRepository testRepository;
+
+	@AfterAll
+	static void clearSecurityContext() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@BeforeAll
+	static void initSecurityContext() {
+		SecurityContextHolder.setContext(new SecurityContextImpl());
+	}
+
+	private OwnedTestEntity saveAndFlushAs(String login, String owner) {
+		setCurrentUser(login);
+
+		OwnedTestEntity entity = new OwnedTestEntity();
+		entity.setOwner(owner);
+		entity.setValue(42);
+		return testRepository.saveAndFlush(entity);
+	}
+
+	private void setCurrentUser(String login) {
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(login, null, emptyList()));
+	}
+
+	@Test
+	void deleteOfNotMyEntityIsCheckedAgainstLoadedState() {
+		final OwnedTestEntity entity = saveAndFlushAs("root", "otherUser");
+
+		setCurrentUser("testUser");
+		entity.setOwner("testUser");
+
+		final List<String> queries = queryListener.listen(() -> {
+			assertThrows(AccessDeniedException.class, () -> testRepository.delete(entity));
+		});
+		assertThat(queries, hasSize(0));
+
+		// in-memory changes are not discarded (unlike with refresh)
+		assertEquals("testUser", entity.getOwner());
+	}
+
+	@Test
+	void saveOfEntityWithNotFlushedCollectionChangeIsDenied() {
+		setCurrentUser("root");
+		final SharedTestEntity entity = new SharedTestEntity();
+		entity.getEditors().add("otherUser");
+		sharedRepository.saveAndFlush(entity);
+
+		setCurrentUser("testUser");
+		// loaded state of collection is the live collection itself, thus
+		// database is queried for the old state
+		entity.getEditors().add("testUser");
+
+		final List<String> queries = queryListener.listen(() -> {
+			assertThrows(AccessDeniedException.class, () -> sharedRepository.save(entity));
+		});
+		assertThat(queries, not(empty()));
+	}
+
+	@Test
+	void saveOfFlushedEntityDoesNotQueryDatabase() {
+		final OwnedTestEntity entity = saveAndFlushAs("testUser", "testUser");
+		entity.setValue(84);
+
+		final List<String> queries = queryListener.listen(() -> testRepository.save(entity));
+		assertThat(queries, hasSize(0));
+	}
+
+	@Test
+	void saveOfNotMyEntityIsCheckedAgainstLoadedState() {
+		final OwnedTestEntity entity = saveAndFlushAs("root", "otherUser");
+
+		setCurrentUser("testUser");
+		entity.setOwner("testUser");
+
+		final List<String> queries = queryListener.listen(() -> {
+			// mixin is given the entity passed to save(), not the snapshot
+			final ForbiddenUpdateException exc = assertThrows(ForbiddenUpdateException.class,
+					() -> testRepository.save(entity));
+			assertSame(entity, exc.getEntity());
+		});
+		assertThat(queries, hasSize(0));
+	}
+
+	@Test
+	void saveAllOfNotMyEntityReportsEntityPassedByCaller() {
+		final OwnedTestEntity entity = saveAndFlushAs("root", "otherUser");
+
+		setCurrentUser("testUser");
+		entity.setOwner("testUser");
+
+		final ForbiddenUpdateException exc = assertThrows(ForbiddenUpdateException.class,
+				() -> testRepository.saveAll(asList(entity)));
+		assertSame(entity, exc.getEntity());
+	}
+
+	@Test
+	void saveAllOfFlushedEntitiesDoesNotQueryDatabase() {
+		final OwnedTestEntity first = saveAndFlushAs("testUser", "testUser");
+		final OwnedTestEntity second = saveAndFlushAs("testUser", "testUser");
+		first.setValue(1);
+		second.setValue(2);
+
+		final List<String> queries = queryListener.listen(() -> testRepository.saveAll(asList(first, second)));
+		assertThat(queries, hasSize(0));
+	}
+
+}
@@ -0,0 +1,40 @@
+package com.github.vlsergey.springdata.entitysecurity.snapshot;
+
+import org.springframework.security.access.AccessDeniedException;
+
+import com.github.vlsergey.springdata.entitysecurity.SecuredWith;
+import com.github.vlsergey.springdata.entitysecurity.owned.OwnedTestEntity;
+import com.github.vlsergey.springdata.entitysecurity.owned.OwnedTestEntityBaseRepository;
+import com.github.vlsergey.springdata.entitysecurity.owned.OwnedTestEntitySecurityMixin;
+import com.github.vlsergey.springdata.entitysecurity.snapshot.SnapshotOwnedTestEntityRepository.SnapshotOwnedTestEntitySecurityMixin;
+
+import lombok.Getter;
+
+@SecuredWith(value = SnapshotOwnedTestEntitySecurityMixin.class, snapshotChecks = true)
+public interface SnapshotOwnedTestEntityRepository extends OwnedTestEntityBaseRepository {
+
+	/**
+	 * Tells which entity instance mixin was given on forbidden update
+	 */
+	@Getter
+	class ForbiddenUpdateException extends AccessDeniedException {
+		private static final long serialVersionUID = 1L;
+
+		private final transient OwnedTestEntity entity;
+
+		ForbiddenUpdateException(OwnedTestEntity entity) {
+			super("update access denied");
+			this.entity = entity;
+		}
+	}
+
+	class SnapshotOwnedTestEntitySecurityMixin extends OwnedTestEntitySecurityMixin {
+
+		@Override
+		public void onForbiddenUpdate(OwnedTestEntity entity) {
+			throw new ForbiddenUpdateException(entity);
+		}
+
+	}
+
+}
@@ -0,0 +1,32 @@
+package com.github.vlsergey.springdata.entitysecurity.windowcount;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import com.github.vlsergey.springdata.entitysecurity.SecuredWith;
+import com.github.vlsergey.springdata.entitysecurity.owned.OwnedTestEntity;
+import com.github.vlsergey.springdata.entitysecurity.owned.OwnedTestEntityBaseRepository;
+import com.github.vlsergey.springdata.entitysecurity.owned.OwnedTestEntitySecurityMixin;
+import com.querydsl.core.types.Predicate;
+
+@SecuredWith(value = OwnedTestEntitySecurityMixin.class, windowCountPaging = true)
+public interface LockingWindowCountOwnedTestEntityRepository extends OwnedTestEntityBaseRepository {
+
+	String QUERY_COMMENT = "locking findAll";
+
+	@Override
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@QueryHints(@QueryHint(name = "org.hibernate.comment", value = QUERY_COMMENT))
+	Page<OwnedTestEntity> findAll(Pageable pageable);
+
+	@Override
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@QueryHints(@QueryHint(name = "org.hibernate.comment", value = QUERY_COMMENT))
+	Page<OwnedTestEntity> findAll(Predicate predicate, Pageable pageable);
+
+}
@@ -0,0 +1,104 @@
+package com.github.vlsergey.springdata.entitysecurity.windowcount;
+
+import static java.util.Collections.emptyList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.test.context.ContextConfiguration;
+
+import com.github.vlsergey.springdata.entitysecurity.TestQueryListener;
+import com.github.vlsergey.springdata.entitysecurity.owned.OwnedTestEntity;
+import com.github.vlsergey.springdata.entitysecurity.owned.QOwnedTestEntity;
+
+/**
+ * Checks that lock mode and query hints of redeclared paged <tt>findAll</tt>
+ * methods reach the single window count query, both of repository and of
+ * Querydsl executor. Query hint is made visible in SQL as a comment.
+ */
+@DataJpaTest(properties = {
+		"spring.jpa.properties.hibernate.metadata_builder_contributor="
+				+ "com.github.vlsergey.springdata.entitysecurity.WindowCountMetadataBuilderContributor",
+		"spring.jpa.properties.hibernate.use_sql_comments=true" })
+@ContextConfiguration(classes = TestConfiguration.class)
+class WindowCountCrudMethodMetadataTest {
+
+	private static final String QUERY_PATTERN = "^/\\* " + LockingWindowCountOwnedTestEntityRepository.QUERY_COMMENT
+			+ " \\*/ select .* over\\(\\) .* from owned_test_entity .*owner=\\?.* for update$";
+
+	private static final String QUERYDSL_QUERY_PATTERN = "^/\\* "
+			+ LockingWindowCountOwnedTestEntityRepository.QUERY_COMMENT
+			+ " \\*/ select .* over\\(\\) .* from owned_test_entity .*value>\\?.*owner=\\?.* for update$";
+
+	@Autowired
+	private TestQueryListener queryListener;
+
+	@Autowired
+	private LockingWindowCountOwnedTestEntityRepository testRepository;
+
+	@AfterAll
+	static void clearSecurityContext() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@BeforeAll
+	static void initSecurityContext() {
+		SecurityContextHolder.setContext(new SecurityContextImpl());
+	}
+
+	@BeforeEach
+	void createEntities() {
+		setCurrentUser("root");
+		Stream.of(1, 2, 3).forEach(value -> {
+			Stream.of("testUser", "otherUser").forEach(owner -> {
+				OwnedTestEntity entity = new OwnedTestEntity();
+				entity.setOwner(owner);
+				entity.setValue(value);
+				testRepository.save(entity);
+			});
+		});
+		testRepository.flush();
+		setCurrentUser("testUser");
+	}
+
+	private void setCurrentUser(String login) {
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(login, null, emptyList()));
+	}
+
+	@Test
+	void findAllPageHasLockModeAndQueryHints() {
+		final List<String> queries = queryListener.listen(() -> assertEquals(3,
+				testRepository.findAll(PageRequest.of(0, 2, Sort.by("value"))).getTotalElements()));
+
+		assertThat(queries, hasSize(1));
+		assertThat(queries.get(0), matchesPattern(QUERY_PATTERN));
+	}
+
+	@Test
+	void querydslFindAllPageHasLockModeAndQueryHints() {
+		final QOwnedTestEntity entity = QOwnedTestEntity.ownedTestEntity;
+		// entities with values 2 and 3 fill the page, so total is taken from window
+		// count
+		final List<String> queries = queryListener.listen(() -> assertEquals(2,
+				testRepository.findAll(entity.value.gt(1), PageRequest.of(0, 2, Sort.by("value"))).getTotalElements()));
+
+		assertThat(queries, hasSize(1));
+		assertThat(queries.get(0), matchesPattern(QUERYDSL_QUERY_PATTERN));
+	}
+
+}
@@ -0,0 +1,10 @@
+package com.github.vlsergey.springdata.entitysecurity.windowcount;
+
+import com.github.vlsergey.springdata.entitysecurity.SecuredWith;
+import com.github.vlsergey.springdata.entitysecurity.owned.OwnedTestEntityBaseRepository;
+import com.github.vlsergey.springdata.entitysecurity.owned.OwnedTestEntitySecurityMixin;
+
+@SecuredWith(value = OwnedTestEntitySecurityMixin.class, windowCountPaging = true)
+public interface WindowCountOwnedTestEntityRepository extends OwnedTestEntityBaseRepository {
+
+}
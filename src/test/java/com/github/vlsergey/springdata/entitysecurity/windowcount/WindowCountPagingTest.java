@@ -0,0 +1,140 @@
+package com.github.vlsergey.springdata.entitysecurity.windowcount;
+
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.test.context.ContextConfiguration;
+
+import com.github.vlsergey.springdata.entitysecurity.TestQueryListener;
+import com.github.vlsergey.springdata.entitysecurity.owned.OwnedTestEntity;
+import com.github.vlsergey.springdata.entitysecurity.owned.QOwnedTestEntity;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.metadata_builder_contributor="
+		+ "com.github.vlsergey.springdata.entitysecurity.WindowCountMetadataBuilderContributor")
+@ContextConfiguration(classes = TestConfiguration.class)
+class WindowCountPagingTest {
+
+	@Autowired
+	private TestQueryListener queryListener;
+
+	@Autowired
+	private WindowCountOwnedTestEntityRepository testRepository;
+
+	@AfterAll
+	static void clearSecurityContext() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@BeforeAll
+	static void initSecurityContext() {
+		SecurityContextHolder.setContext(new SecurityContextImpl());
+	}
+
+	@BeforeEach
+	void createEntities() {
+		setCurrentUser("root");
+		Stream.of(1, 2, 3, 4, 5).forEach(value -> {
+			Stream.of("testUser", "otherUser").forEach(owner -> {
+				OwnedTestEntity entity = new OwnedTestEntity();
+				entity.setOwner(owner);
+				entity.setValue(value);
+				testRepository.save(entity);
+			});
+		});
+		testRepository.flush();
+		setCurrentUser("testUser");
+	}
+
+	private Page<OwnedTestEntity> listenSingleQuery(Supplier<Page<OwnedTestEntity>> supplier) {
+		final AtomicReference<Page<OwnedTestEntity>> page = new AtomicReference<>();
+		final List<String> queries = queryListener.listen(() -> page.set(supplier.get()));
+		assertThat(queries, hasSize(1));
+		assertThat(queries.get(0), matchesPattern("^select .* over\\(\\) .* from owned_test_entity .*$"));
+		assertThat(queries.get(0), containsString("owner=?"));
+		return page.get();
+	}
+
+	private void setCurrentUser(String login) {
+		SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(login, null, emptyList()));
+	}
+
+	@Test
+	void findAllPageIsSingleQuery() {
+		final Page<OwnedTestEntity> page = listenSingleQuery(
+				() -> testRepository.findAll(PageRequest.of(1, 2, Sort.by("value"))));
+
+		assertEquals(5, page.getTotalElements());
+		assertEquals(3, page.getTotalPages());
+		assertThat(page.getContent().stream().map(OwnedTestEntity::getValue).collect(toList()), contains(3, 4));
+	}
+
+	@Test
+	void findAllPageBeyondLastOneQueriesCount() {
+		final List<String> queries = queryListener.listen(() -> {
+			final Page<OwnedTestEntity> page = testRepository.findAll(PageRequest.of(10, 2));
+			assertEquals(5, page.getTotalElements());
+			assertThat(page.getContent(), hasSize(0));
+		});
+		assertThat(queries, hasSize(2));
+		assertThat(queries.get(1), matchesPattern("^select count\\(.*\\) .* from owned_test_entity .*$"));
+	}
+
+	@Test
+	void findAllSpecificationPageIsSingleQuery() {
+		final Page<OwnedTestEntity> page = listenSingleQuery(() -> testRepository.findAll(
+				(root, cq, cb) -> cb.greaterThan(root.get("value"), 1), PageRequest.of(0, 3, Sort.by("value"))));
+
+		assertEquals(4, page.getTotalElements());
+		assertThat(page.getContent().stream().map(OwnedTestEntity::getValue).collect(toList()),
+				contains(2, 3, 4));
+	}
+
+	@Test
+	void querydslFindAllPageBeyondLastOneQueriesCount() {
+		final QOwnedTestEntity entity = QOwnedTestEntity.ownedTestEntity;
+		final List<String> queries = queryListener.listen(() -> {
+			final Page<OwnedTestEntity> page = testRepository.findAll(entity.value.lt(5), PageRequest.of(10, 2));
+			assertEquals(4, page.getTotalElements());
+			assertThat(page.getContent(), hasSize(0));
+		});
+		assertThat(queries, hasSize(2));
+		assertThat(queries.get(1), matchesPattern("^select count\\(.*\\) .* from owned_test_entity .*owner=\\?.*$"));
+	}
+
+	@Test
+	void querydslFindAllPageIsSingleQuery() {
+		final QOwnedTestEntity entity = QOwnedTestEntity.ownedTestEntity;
+		// page is full, so total is taken from window count, not computed from
+		// page content
+		final Page<OwnedTestEntity> page = listenSingleQuery(
+				() -> testRepository.findAll(entity.value.lt(5), PageRequest.of(0, 3, Sort.by("value"))));
+
+		assertEquals(4, page.getTotalElements());
+		assertThat(page.getContent().stream().map(OwnedTestEntity::getValue).collect(toList()),
+				contains(1, 2, 3));
+	}
+
+}
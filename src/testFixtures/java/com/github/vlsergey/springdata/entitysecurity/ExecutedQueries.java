@@ -0,0 +1,66 @@
+package com.github.vlsergey.springdata.entitysecurity;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * SQL statements executed during single call, with assertions on their number
+ * (i.e. query budget of the call). Statement executed as JDBC batch is counted
+ * once. Example:
+ *
+ * <pre>
+ * queryListener.assertQueries(() -&gt; repository.findById(id)).selects(1).total(1);
+ * </pre>
+ *
+ * @see TestQueryListener#assertQueries(Runnable)
+ */
+public class ExecutedQueries {
+
+	@Getter
+	private final @NonNull List<String> queries;
+
+	ExecutedQueries(final @NonNull List<String> queries) {
+		this.queries = Collections.unmodifiableList(queries);
+	}
+
+	private ExecutedQueries assertCount(final String kind, final long actual, final int expected) {
+		if (actual != expected) {
+			throw new AssertionError("Expected " + expected + " " + kind + " statement(s), but " + actual
+					+ " executed:\n" + String.join("\n", queries));
+		}
+		return this;
+	}
+
+	private long count(final @NonNull String keyword) {
+		return queries.stream().filter(sql -> sql.trim().toLowerCase(Locale.ROOT).startsWith(keyword)).count();
+	}
+
+	public ExecutedQueries deletes(final int expected) {
+		return assertCount("DELETE", count("delete"), expected);
+	}
+
+	public ExecutedQueries inserts(final int expected) {
+		return assertCount("INSERT", count("insert"), expected);
+	}
+
+	public ExecutedQueries selects(final int expected) {
+		return assertCount("SELECT", count("select"), expected);
+	}
+
+	/**
+	 * Asserts number of all statements, including ones not checked by other
+	 * methods
+	 */
+	public ExecutedQueries total(final int expected) {
+		return assertCount("total", queries.size(), expected);
+	}
+
+	public ExecutedQueries updates(final int expected) {
+		return assertCount("UPDATE", count("update"), expected);
+	}
+
+}
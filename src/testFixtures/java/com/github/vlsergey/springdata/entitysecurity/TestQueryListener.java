@@ -12,6 +12,8 @@ import net.ttddyy.dsproxy.listener.QueryExecutionListener;
 
 public class TestQueryListener implements QueryExecutionListener {
 
+	private List<Consumer<ExecutionInfo>> executionListeners = synchronizedList(new ArrayList<>());
+
 	private List<Consumer<String>> queryListeners = synchronizedList(new ArrayList<>());
 
 	@Override
@@ -20,13 +22,21 @@ public class TestQueryListener implements QueryExecutionListener {
 
 	@Override
 	public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+		executionListeners.forEach(listener -> listener.accept(execInfo));
 		queryInfoList.forEach(qi -> queryListeners.forEach(listener -> {
 			listener.accept(qi.getQuery());
 		}));
 	}
 
+	/**
+	 * @return statements executed by passed code, to assert their number
+	 */
+	public ExecutedQueries assertQueries(Runnable runnable) {
+		return new ExecutedQueries(listen(runnable));
+	}
+
 	public List<String> listen(Runnable runnable) {
-		final List<String> queries = new ArrayList<>();
+		final List<String> queries = synchronizedList(new ArrayList<>());
 		final Consumer<String> listener = queries::add;
 		queryListeners.add(listener);
 		try {
@@ -37,4 +47,21 @@ public class TestQueryListener implements QueryExecutionListener {
 		}
 	}
 
+	/**
+	 * @return information about executed JDBC statements (including batches,
+	 *         see {@link ExecutionInfo#isBatch()} and
+	 *         {@link ExecutionInfo#getBatchSize()})
+	 */
+	public List<ExecutionInfo> listenExecutions(Runnable runnable) {
+		final List<ExecutionInfo> executions = synchronizedList(new ArrayList<>());
+		final Consumer<ExecutionInfo> listener = executions::add;
+		executionListeners.add(listener);
+		try {
+			runnable.run();
+			return executions;
+		} finally {
+			executionListeners.remove(listener);
+		}
+	}
+
 }